@@ -0,0 +1,480 @@
+/**
+ * Arena.java
+ * Arena mode: many snakes play on the same board at once, every snake moves on every tick
+ * All moves of a tick are resolved together against the board as it was before the tick, in a single pass:
+ *   a snake that moves onto a WALL (checked against the WallIndex of the level, like GameManager)
+ *   or any SNAKE piece (tails included) dies,
+ *   snakes that move onto the same cell meet head to head, only the longest survives and a tie kills all of them,
+ *   so an APPLE two snakes go for is eaten by the longer one.
+ * The cells moved onto are kept in a claim map, a small open addressing table that is sized for the number of snakes
+ * and never cleared (entries of older ticks are told apart by their tick), so a tick costs O(snakes) whatever
+ * the size of the board.
+ * Dead snakes are taken off the board at the end of the tick, and the APPLEs eaten are spawned again from FreeCells.
+ * An APPLE that found no EMPTY cell is tried again on every tick where there is one, so apples come back
+ * once dead snakes free their cells.
+ * Every APPLE is a normal APPLE (score and length + 1), there are no special apples or speed in an arena.
+ * Used headless for bot tournaments, like SnakeEngine
+ * Run with 'java Arena [-snakes n] [-apples n] [-ticks t] [-seed s] [-size n] [level-file | map-number]'
+ */
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class Arena {
+    private static final int START_LENGTH = 5;
+
+    private final Level level;
+    private final int maxRow; //height, y-axis
+    private final int maxCol; //width, x-axis
+    private final Board board;
+    private final FreeCells freeCells;
+    private SplittableRandom random;
+    private long tick = 0;
+
+    private final SnakeBody[] bodies;
+    private final Direction[] headings;
+    private final int[] maxLens;
+    private final int[] scores;
+    private final boolean[] alive;
+    private int aliveCount;
+    private final int[] apples;
+    private int missingApples;
+
+    private final int[] targets;
+    private final int[] claimSlots;
+    private final int[] claimCells;
+    private final long[] claimTicks;
+    private final int[] claimWinners;
+    private final int[] claimLengths;
+    private final int claimShift;
+
+    /**
+     * Chooses the next Direction of one snake in an arena
+     */
+    @FunctionalInterface
+    public interface Bot {
+        /**
+         * @param arena the Arena being played
+         * @param snake index of the snake to move
+         * @return Direction the snake should move in next
+         */
+        Direction nextMove(Arena arena, int snake);
+    }
+
+    /**
+     * Creates a new Arena and places its snakes and apples
+     * @param args command line args, if a level file is specified it is used
+     * @param mapChoice integer that decides what built-in level to use if there is no level file
+     * @param snakes number of snakes
+     * @param appleCount number of APPLEs on the board at once
+     * @param seed seed of the random number generator that places apples and snakes
+     */
+    public Arena(String[] args, int mapChoice, int snakes, int appleCount, long seed) throws IOException {
+        if (snakes <= 0) {
+            throw new IllegalArgumentException("An arena needs at least one snake, was " + snakes);
+        }
+        if (appleCount < 0) {
+            throw new IllegalArgumentException("Number of apples can not be negative, was " + appleCount);
+        }
+        this.level = args.length != 0 ? LevelCache.get(new File(args[0])) : Level.builtIn(mapChoice);
+        this.maxRow = level.getRows();
+        this.maxCol = level.getCols();
+        this.board = new Board(maxRow, maxCol);
+        this.freeCells = new FreeCells(board);
+
+        this.bodies = new SnakeBody[snakes];
+        for (int i = 0; i < snakes; i++) {
+            bodies[i] = new SnakeBody(START_LENGTH);
+        }
+        this.headings = new Direction[snakes];
+        this.maxLens = new int[snakes];
+        this.scores = new int[snakes];
+        this.alive = new boolean[snakes];
+        this.apples = new int[appleCount];
+        this.targets = new int[snakes];
+        this.claimSlots = new int[snakes];
+
+        int capacity = Integer.highestOneBit(snakes) << 2;
+        this.claimCells = new int[capacity];
+        this.claimTicks = new long[capacity];
+        this.claimWinners = new int[capacity];
+        this.claimLengths = new int[capacity];
+        this.claimShift = 32 - Integer.numberOfTrailingZeros(capacity);
+        reset(seed);
+    }
+
+    /**
+     * Starts a new round: copies the Template of the level, then spawns every snake and apple
+     * The same seed, level, and moves always play out the same round
+     * @param seed seed of the random number generator that places apples and snakes
+     */
+    public void reset(long seed) {
+        random = new SplittableRandom(seed);
+        tick = 0;
+        Level.Template template = level.getTemplate();
+        board.resetTo(template.board());
+        freeCells.copyFrom(template.freeCells());
+        Arrays.fill(claimTicks, -1);
+
+        aliveCount = 0;
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i].clear();
+            headings[i] = Direction.LEFT;
+            maxLens[i] = START_LENGTH;
+            scores[i] = 0;
+            alive[i] = freeCells.size() != 0;
+            if (alive[i]) {
+                int cell = freeCells.get(random.nextInt(freeCells.size()));
+                bodies[i].pushHead(cell);
+                setPiece(cell, GamePieces.SNAKE);
+                aliveCount++;
+            }
+        }
+        missingApples = 0;
+        for (int i = 0; i < apples.length; i++) {
+            apples[i] = spawnApple();
+            if (apples[i] < 0) {
+                missingApples++;
+            }
+        }
+    }
+
+    /**
+     * Moves every living snake one piece at the same time, and resolves what happens in a single pass
+     * @param directions Direction of every snake, by index, entries of dead snakes are ignored
+     */
+    public void step(Direction[] directions) {
+        tick++;
+        for (int i = 0; i < bodies.length; i++) {
+            if (alive[i]) {
+                headings[i] = directions[i];
+                int head = bodies[i].head();
+                int row = head / maxCol + directions[i].getChangeRow();
+                int col = head % maxCol + directions[i].getChangeCol();
+                targets[i] = row * maxCol + col;
+                claimSlots[i] = claim(targets[i], i, bodies[i].size());
+            }
+        }
+
+        boolean eaten = false;
+        for (int i = 0; i < bodies.length; i++) {
+            if (!alive[i]) {
+                continue;
+            }
+            GamePieces piece = board.get(targets[i]);
+            if (claimWinners[claimSlots[i]] != i || piece == GamePieces.SNAKE
+                    || level.isWall(targets[i] / maxCol, targets[i] % maxCol)) {
+                alive[i] = false;
+                aliveCount--;
+            } else if (piece == GamePieces.APPLE) {
+                scores[i]++;
+                maxLens[i]++;
+                bodies[i].ensureCapacity(maxLens[i]);
+                eaten = true;
+            }
+        }
+
+        for (int i = 0; i < bodies.length; i++) {
+            if (alive[i]) {
+                boolean growing = bodies[i].size() < maxLens[i];
+                bodies[i].pushHead(targets[i]);
+                setPiece(targets[i], GamePieces.SNAKE);
+                if (!growing) {
+                    setPiece(bodies[i].popTail(), GamePieces.EMPTY);
+                }
+            } else if (bodies[i].size() != 0) {
+                while (bodies[i].size() != 0) {
+                    setPiece(bodies[i].popTail(), GamePieces.EMPTY);
+                }
+            }
+        }
+
+        if (eaten || missingApples != 0 && freeCells.size() != 0) {
+            respawnApples();
+        }
+    }
+
+    /**
+     * Spawns every APPLE again that was eaten or could not be placed, and counts the ones that still could not
+     */
+    private void respawnApples() {
+        missingApples = 0;
+        for (int i = 0; i < apples.length; i++) {
+            if (apples[i] < 0 || board.get(apples[i]) != GamePieces.APPLE) {
+                apples[i] = spawnApple();
+                if (apples[i] < 0) {
+                    missingApples++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a snake to the claim map entry of cell, the longest snake that claims a cell wins it
+     * A linear probe stops at the first entry of an older tick, so the table never has to be cleared
+     * @return slot of the entry of cell in the claim map
+     */
+    private int claim(int cell, int snake, int length) {
+        int mask = claimCells.length - 1;
+        int slot = (cell * 0x9E3779B9) >>> claimShift;
+        while (claimTicks[slot] == tick && claimCells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        if (claimTicks[slot] != tick) {
+            claimTicks[slot] = tick;
+            claimCells[slot] = cell;
+            claimWinners[slot] = snake;
+            claimLengths[slot] = length;
+        } else if (length > claimLengths[slot]) {
+            claimWinners[slot] = snake;
+            claimLengths[slot] = length;
+        } else if (length == claimLengths[slot]) {
+            claimWinners[slot] = -1;
+        }
+        return slot;
+    }
+
+    /**
+     * Sets a cell of the board to a gamePiece, and keeps freeCells up to date
+     */
+    private void setPiece(int cell, GamePieces piece) {
+        int row = cell / maxCol;
+        int col = cell - row * maxCol;
+        GamePieces oldPiece = board.get(row, col);
+        board.set(row, col, piece);
+        if (piece == GamePieces.EMPTY && oldPiece != GamePieces.EMPTY) {
+            freeCells.add(row, col);
+        } else if (piece != GamePieces.EMPTY && oldPiece == GamePieces.EMPTY) {
+            freeCells.remove(row, col);
+        }
+    }
+
+    /**
+     * Places an APPLE on a random EMPTY cell
+     * @return cell of the APPLE, -1 if there is no EMPTY cell left
+     */
+    private int spawnApple() {
+        if (freeCells.size() == 0) {
+            return -1;
+        }
+        int cell = freeCells.get(random.nextInt(freeCells.size()));
+        setPiece(cell, GamePieces.APPLE);
+        return cell;
+    }
+
+    /**
+     * Plays a round until at most one snake is alive (none if there is a single snake), or ticks run out
+     * @param ticks maximum number of ticks to run
+     * @param bot Bot that moves every snake
+     * @return number of ticks that were run
+     */
+    public long run(long ticks, Bot bot) {
+        Direction[] directions = new Direction[bodies.length];
+        long ran = 0;
+        while (ran < ticks && !isOver()) {
+            for (int i = 0; i < bodies.length; i++) {
+                directions[i] = alive[i] ? bot.nextMove(this, i) : headings[i];
+            }
+            step(directions);
+            ran++;
+        }
+        return ran;
+    }
+
+    /**
+     * @return true if the round is over, at most one snake is left (none if the arena has a single snake)
+     */
+    public boolean isOver() {
+        return aliveCount <= (bodies.length > 1 ? 1 : 0);
+    }
+
+    /**
+     * @return the Board every snake plays on
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the Level of the arena
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * @return number of snakes, alive or not
+     */
+    public int getSnakeCount() {
+        return bodies.length;
+    }
+
+    /**
+     * @return number of snakes still alive
+     */
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    /**
+     * @param snake index of the snake
+     * @return true if the snake is still alive
+     */
+    public boolean isAlive(int snake) {
+        return alive[snake];
+    }
+
+    /**
+     * @param snake index of the snake
+     * @return body of the snake, empty once it is dead
+     */
+    public SnakeBody getSnakeBody(int snake) {
+        return bodies[snake];
+    }
+
+    /**
+     * @param snake index of the snake
+     * @return Direction the snake moved in last
+     */
+    public Direction getHeading(int snake) {
+        return headings[snake];
+    }
+
+    /**
+     * @param snake index of the snake
+     * @return number of APPLEs the snake ate
+     */
+    public int getScore(int snake) {
+        return scores[snake];
+    }
+
+    /**
+     * @param index index of the apple, between 0 and getAppleCount
+     * @return cell of the APPLE, -1 if it could not be placed
+     */
+    public int getApple(int index) {
+        return apples[index];
+    }
+
+    /**
+     * @return number of APPLEs on the board at once
+     */
+    public int getAppleCount() {
+        return apples.length;
+    }
+
+    /**
+     * @return number of ticks since the round started
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * A Bot that heads for the nearest APPLE, and never moves onto a WALL or SNAKE if it has another choice
+     * It does not look further than one move ahead, so it is cheap enough to run hundreds of snakes
+     */
+    public static class GreedyBot implements Bot {
+        @Override
+        public Direction nextMove(Arena arena, int snake) {
+            int maxCol = arena.maxCol;
+            int head = arena.bodies[snake].head();
+            int headRow = head / maxCol;
+            int headCol = head % maxCol;
+            int target = -1;
+            int targetDistance = Integer.MAX_VALUE;
+            for (int apple : arena.apples) {
+                if (apple >= 0) {
+                    int distance = Math.abs(apple / maxCol - headRow) + Math.abs(apple % maxCol - headCol);
+                    if (distance < targetDistance) {
+                        target = apple;
+                        targetDistance = distance;
+                    }
+                }
+            }
+
+            Direction heading = arena.headings[snake];
+            Direction best = heading;
+            int bestDistance = Integer.MAX_VALUE;
+            for (Direction direction : Direction.values()) {
+                if (direction == heading.opposite()) {
+                    continue;
+                }
+                int row = headRow + direction.getChangeRow();
+                int col = headCol + direction.getChangeCol();
+                if (arena.board.get(row, col) == GamePieces.SNAKE || arena.level.isWall(row, col)) {
+                    continue;
+                }
+                int distance = target < 0 ? 0
+                        : Math.abs(target / maxCol - row) + Math.abs(target % maxCol - col);
+                if (distance < bestDistance) {
+                    best = direction;
+                    bestDistance = distance;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Writes a box level of the given size to a temporary file, for arenas bigger than the built-in levels
+     * @return path of the level file
+     */
+    private static String boxLevel(int size) throws IOException {
+        File level = File.createTempFile("snake-arena-" + size + "-", ".txt");
+        level.deleteOnExit();
+        int last = size - 1;
+        try (PrintWriter output = new PrintWriter(new FileWriter(level))) {
+            output.println(size + " " + size);
+            output.println("0 " + last + " 0 0");
+            output.println("0 " + last + " " + last + " " + last);
+            output.println("0 0 0 " + last);
+            output.println(last + " " + last + " 0 " + last);
+        }
+        return level.getPath();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int snakes = 200;
+        int appleCount = 50;
+        long maxTicks = 10_000;
+        long seed = 1;
+        String[] levelArgs = new String[0];
+        int mapChoice = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-snakes" -> snakes = Integer.parseInt(args[++i]);
+                case "-apples" -> appleCount = Integer.parseInt(args[++i]);
+                case "-ticks" -> maxTicks = Long.parseLong(args[++i]);
+                case "-seed" -> seed = Long.parseLong(args[++i]);
+                case "-size" -> levelArgs = new String[]{boxLevel(Integer.parseInt(args[++i]))};
+                default -> {
+                    if (args[i].matches("\\d+")) {
+                        mapChoice = Integer.parseInt(args[i]);
+                    } else {
+                        levelArgs = new String[]{args[i]};
+                    }
+                }
+            }
+        }
+
+        Arena arena = new Arena(levelArgs, mapChoice, snakes, appleCount, seed);
+        long start = System.nanoTime();
+        long ticks = arena.run(maxTicks, new GreedyBot());
+        long nanos = System.nanoTime() - start;
+
+        int best = 0;
+        for (int i = 1; i < snakes; i++) {
+            if (arena.getScore(i) > arena.getScore(best)) {
+                best = i;
+            }
+        }
+        System.out.printf("%d snakes on %s, %d ticks, %d alive, best snake %d with score %d%n", snakes,
+                arena.getLevel().getName(), ticks, arena.getAliveCount(), best, arena.getScore(best));
+        System.out.printf("%.2f s, %.0f ticks/s, %.0f moves/s%n", nanos / 1e9, ticks / (nanos / 1e9),
+                (double) ticks * snakes / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,367 @@
+/**
+ * Autopilot.java
+ * A computer player, used for demo and soak sessions with --autopilot
+ * Follows a BFS distance field from the apple over every cell that is not a WALL. The field only depends on the walls
+ * and the apple, so it is computed once per apple (when spawnApple moves it) and reused until the apple is eaten.
+ * The field only keeps each distance modulo 3 in a byte per cell: neighbouring cells are at most one move apart,
+ * which is all a move needs to tell whether a neighbour of the head is closer to the apple.
+ * Each move goes to the free neighbour closest to the apple, as long as the tail can still be reached from it,
+ * so the snake does not close itself in. When the snake blocks the way (no such neighbour is closer than the head),
+ * it chases its own tail instead, which keeps the most room open until the way clears.
+ * Once it has chased its tail for more moves than the snake is long without eating the apple, it also takes neighbours
+ * that open into at least as many free cells as the snake is long, so it does not circle forever.
+ * The tail is looked for with a best first search from a neighbour of the head, only for the neighbours a move
+ * looks at, and the search stops after SEARCH_LENGTHS times as many cells as the snake is long. A neighbour that
+ * opens into that many free cells counts as one the tail can be reached from, so a move costs time for the length
+ * of the snake and not for the size of the board.
+ * The tail search marks the cells it saw in a bit per cell and keeps them in a list, sized by the number of cells
+ * the search may see and not by the board, so only the field and the marks grow with the board.
+ * The arrays are allocated once per board (the list and heap grow when a longer snake needs them),
+ * and only the cells a search saw are cleared, so a move allocates nothing
+ */
+import java.util.Arrays;
+
+public class Autopilot implements Policy {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int SEARCH_LENGTHS = 4;
+
+    private GameManager game;
+    private Level level;
+    private int rows;
+    private int cols;
+    private byte[] appleLevel;
+    private int[] frontier = new int[64];
+    private int[] nextFrontier = new int[64];
+    private long[] seenMarks;
+    private int[] seen = new int[64];
+    private int[] heapCells = new int[64];
+    private int[] heapKeys = new int[64];
+    private int[] heapMoves = new int[64];
+    private int heapSize = 0;
+    private final boolean[] searched = new boolean[DIRECTIONS.length];
+    private final int[] tailSteps = new int[DIRECTIONS.length];
+    private final int[] room = new int[DIRECTIONS.length];
+    private int head;
+    private int tail;
+    private int length;
+    private int appleCell = -1;
+    private int chasingMoves = 0;
+
+    @Override
+    public Direction nextMove(GameManager game) {
+        prepare(game);
+        Board board = game.getBoard();
+        Direction heading = game.getHeading();
+        this.head = game.getHeadRow() * cols + game.getHeadCol();
+        this.tail = game.getSnakeBody().tail();
+        this.length = game.getSnakeLength();
+        Arrays.fill(searched, false);
+
+        int apple = game.getAppleRow() < 0 ? -1 : game.getAppleRow() * cols + game.getAppleCol();
+        if (apple != appleCell) {
+            appleCell = apple;
+            chasingMoves = 0;
+            if (apple >= 0) {
+                appleDistances(apple);
+            }
+        }
+
+        if (apple >= 0) {
+            Direction best = towardApple(board, heading, false);
+            if (best == null && chasingMoves > length) {
+                best = towardApple(board, heading, true);
+            }
+            if (best != null) {
+                return best;
+            }
+        }
+        chasingMoves++;
+        return chaseTail(board, heading);
+    }
+
+    /**
+     * Picks a free neighbour one move closer to the apple than the head, the closest any neighbour can be
+     * Those neighbours are searched from in the order of DIRECTIONS, until one is good enough
+     * @param roomIsEnough false to only pick neighbours the tail can be reached from,
+     * true to also pick neighbours that open into at least as many free cells as the snake is long
+     * @return Direction of that neighbour, null if there is none
+     */
+    private Direction towardApple(Board board, Direction heading, boolean roomIsEnough) {
+        int headLevel = appleLevel[head];
+        if (headLevel == 0) {
+            return null;
+        }
+        for (Direction direction : DIRECTIONS) {
+            int next = neighbour(head, direction);
+            if (direction != heading.opposite() && isSafe(board, next) && appleLevel[next] != 0
+                    && headLevel == nextLevel(appleLevel[next])) {
+                int d = search(board, direction);
+                if (tailSteps[d] != UNREACHABLE || roomIsEnough && room[d] >= length) {
+                    return direction;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves to the free neighbour closest to the tail
+     * If the tail was not found from any neighbour, moves to the one that opens into the most free cells,
+     * and if there is no free neighbour, keeps moving in the same direction
+     */
+    private Direction chaseTail(Board board, Direction heading) {
+        Direction best = null;
+        int bestSteps = UNREACHABLE;
+        int bestRoom = 0;
+        for (Direction direction : DIRECTIONS) {
+            if (direction == heading.opposite() || !isSafe(board, neighbour(head, direction))) {
+                continue;
+            }
+            int d = search(board, direction);
+            if (tailSteps[d] < bestSteps
+                    || bestSteps == UNREACHABLE && tailSteps[d] == UNREACHABLE
+                    && (room[d] > bestRoom || room[d] == bestRoom && direction == heading)) {
+                best = direction;
+                bestSteps = tailSteps[d];
+                bestRoom = room[d];
+            }
+        }
+        return best != null ? best : heading;
+    }
+
+    /**
+     * Searches from the neighbour of the head in direction for the tail, once per move,
+     * filling tailSteps with the number of moves from the neighbour to the tail, and room with the number of
+     * free cells the search saw
+     * If the search saw SEARCH_LENGTHS times as many free cells as the snake is long without finding the tail,
+     * tailSteps is set to that number of cells, further than any tail that was found
+     * @param direction Direction of a free neighbour of the head
+     * @return ordinal of direction, the index of the results in tailSteps and room
+     */
+    private int search(Board board, Direction direction) {
+        int d = direction.ordinal();
+        if (!searched[d]) {
+            searched[d] = true;
+            tailSteps[d] = UNREACHABLE;
+            int limit = SEARCH_LENGTHS * length;
+            room[d] = tailDistance(board, neighbour(head, direction), limit, d);
+            if (tailSteps[d] == UNREACHABLE && room[d] >= limit) {
+                tailSteps[d] = room[d];
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Best first search from source over free cells toward the tail, ordered by the moves made so far plus the
+     * row and column distance to the tail, until the tail is next to a visited cell or limit cells were visited
+     * (the neighbours of source are always looked at, for a snake of length 1)
+     * The marks of the seen cells are cleared again before it returns
+     * @param source free cell the search starts from
+     * @param limit number of visited cells the search stops at
+     * @param d ordinal of the Direction of source, tailSteps[d] is set if the tail is found
+     * @return number of cells that were seen, including source
+     */
+    private int tailDistance(Board board, int source, int limit, int d) {
+        int tailRow = tail / cols;
+        int tailCol = tail % cols;
+        mark(source);
+        seen[0] = source;
+        int seenCount = 1;
+        heapSize = 0;
+        push(source, estimate(source, 0, tailRow, tailCol), 0);
+        int visited = 0;
+        search:
+        while (heapSize > 0 && (visited == 0 || visited < limit)) {
+            int moves = heapMoves[0];
+            int cell = pop();
+            visited++;
+            for (Direction direction : DIRECTIONS) {
+                int next = neighbour(cell, direction);
+                if (next == tail) {
+                    tailSteps[d] = moves + 1;
+                    break search;
+                }
+                if (next >= 0 && !isMarked(next) && isSafe(board, next)) {
+                    mark(next);
+                    if (seenCount == seen.length) {
+                        seen = Arrays.copyOf(seen, 2 * seenCount);
+                    }
+                    seen[seenCount++] = next;
+                    push(next, estimate(next, moves + 1, tailRow, tailCol), moves + 1);
+                }
+            }
+        }
+        for (int i = 0; i < seenCount; i++) {
+            seenMarks[seen[i] >>> 6] = 0;
+        }
+        return seenCount;
+    }
+
+    /**
+     * Marks cell as seen by tailDistance
+     */
+    private void mark(int cell) {
+        seenMarks[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * @return true if cell was seen by tailDistance
+     */
+    private boolean isMarked(int cell) {
+        return (seenMarks[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    /**
+     * @return moves made to reach cell plus the row and column distance from cell to the tail
+     */
+    private int estimate(int cell, int moves, int tailRow, int tailCol) {
+        return moves + Math.abs(cell / cols - tailRow) + Math.abs(cell % cols - tailCol);
+    }
+
+    /**
+     * Adds a cell to the binary heap of tailDistance, ordered by key
+     * @param moves moves made to reach cell, kept with it
+     */
+    private void push(int cell, int key, int moves) {
+        if (heapSize == heapCells.length) {
+            heapCells = Arrays.copyOf(heapCells, 2 * heapSize);
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+            heapMoves = Arrays.copyOf(heapMoves, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapCells[i] = heapCells[parent];
+            heapKeys[i] = heapKeys[parent];
+            heapMoves[i] = heapMoves[parent];
+            i = parent;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+        heapMoves[i] = moves;
+    }
+
+    /**
+     * Removes the cell with the smallest key from the binary heap of tailDistance
+     * @return that cell
+     */
+    private int pop() {
+        int top = heapCells[0];
+        int cell = heapCells[--heapSize];
+        int key = heapKeys[heapSize];
+        int moves = heapMoves[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (heapKeys[child] >= key) {
+                break;
+            }
+            heapCells[i] = heapCells[child];
+            heapKeys[i] = heapKeys[child];
+            heapMoves[i] = heapMoves[child];
+            i = child;
+        }
+        heapCells[i] = cell;
+        heapKeys[i] = key;
+        heapMoves[i] = moves;
+        return top;
+    }
+
+    /**
+     * Fills appleLevel with the number of moves from apple to every cell that is not a WALL (of the WallIndex of the
+     * level), modulo 3 plus 1, with a breadth first search one distance at a time
+     * Cells the apple cannot be reached from are left at 0
+     * @param apple cell the search starts from
+     */
+    private void appleDistances(int apple) {
+        Arrays.fill(appleLevel, (byte) 0);
+        appleLevel[apple] = 1;
+        frontier[0] = apple;
+        int count = 1;
+        while (count > 0) {
+            int nextCount = 0;
+            for (int i = 0; i < count; i++) {
+                int cell = frontier[i];
+                for (Direction direction : DIRECTIONS) {
+                    int next = neighbour(cell, direction);
+                    if (next >= 0 && appleLevel[next] == 0 && !isWall(next)) {
+                        appleLevel[next] = nextLevel(appleLevel[cell]);
+                        if (nextCount == nextFrontier.length) {
+                            nextFrontier = Arrays.copyOf(nextFrontier, 2 * nextCount);
+                        }
+                        nextFrontier[nextCount++] = next;
+                    }
+                }
+            }
+            int[] swap = frontier;
+            frontier = nextFrontier;
+            nextFrontier = swap;
+            count = nextCount;
+        }
+    }
+
+    /**
+     * @return the appleLevel of a cell one move further from the apple than a cell with appleLevel level
+     */
+    private static byte nextLevel(int level) {
+        return (byte) (level % 3 + 1);
+    }
+
+    /**
+     * @return true if the snake head can move into cell without colliding,
+     * every SNAKE piece collides, even the tail that moves away on the same tick
+     */
+    private boolean isSafe(Board board, int cell) {
+        return cell >= 0 && board.get(cell) != GamePieces.SNAKE && !isWall(cell);
+    }
+
+    /**
+     * @return true if cell is a WALL, checked against the WallIndex of the level like GameManager.collision
+     */
+    private boolean isWall(int cell) {
+        return level.isWall(cell / cols, cell % cols);
+    }
+
+    /**
+     * @return the cell next to cell in direction, -1 if it is outside the board
+     */
+    private int neighbour(int cell, Direction direction) {
+        int row = cell / cols + direction.getChangeRow();
+        int col = cell % cols + direction.getChangeCol();
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return -1;
+        }
+        return row * cols + col;
+    }
+
+    /**
+     * Allocates the per cell arrays for the board of game, only when it is played for the first time
+     */
+    private void prepare(GameManager game) {
+        if (this.game == game) {
+            return;
+        }
+        Board board = game.getBoard();
+        this.game = game;
+        this.level = game.getLevel();
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        if (appleLevel == null || appleLevel.length != board.size()) {
+            this.appleLevel = new byte[board.size()];
+            this.seenMarks = new long[(board.size() + 63) >>> 6];
+        }
+        this.appleCell = -1;
+        this.chasingMoves = 0;
+    }
+}
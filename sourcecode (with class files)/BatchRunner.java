@@ -0,0 +1,317 @@
+/**
+ * BatchRunner.java
+ * Plays many headless games in parallel on a work-stealing ForkJoinPool, and sums up their scores and lengths
+ * Every game is described by a Job (level, seed, policy, and tick limit), and gets its own GameManager, SnakeEngine,
+ * and SplittableRandom, so the worker threads never share any state while playing
+ * Used to compare policies and the balance of levels over thousands of games
+ * Run with 'java BatchRunner [-games n] [-seed s] [-ticks t] [-threads n] [-turn p] [level-file | map-number]'
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+public class BatchRunner implements AutoCloseable {
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a Policy for a single game
+     * A new Policy is created for every game, so policies may keep state between moves
+     */
+    @FunctionalInterface
+    public interface PolicyFactory {
+        /**
+         * @param random SplittableRandom owned by this game only, for policies that make random choices
+         * @return Policy that plays the game
+         */
+        Policy create(SplittableRandom random);
+    }
+
+    /**
+     * A game to be played
+     * @param levelArgs command line args passed to GameManager (the level file)
+     * @param mapChoice built-in level choice passed to GameManager
+     * @param seed seed of the game
+     * @param policy PolicyFactory that creates the Policy playing the game
+     * @param maxTicks the game stops after this many ticks if the snake has not collided yet
+     */
+    public record Job(String[] levelArgs, int mapChoice, long seed, PolicyFactory policy, long maxTicks) {
+    }
+
+    /**
+     * The outcome of a single game
+     * @param job Job that was played
+     * @param score score at the end of the game
+     * @param length length of the snake at the end of the game
+     * @param ticks number of ticks the game ran for
+     * @param collision true if the game ended with a collision, false if it reached maxTicks
+     */
+    public record GameResult(Job job, int score, int length, long ticks, boolean collision) {
+    }
+
+    /**
+     * Score, length, and tick statistics over a number of games
+     */
+    public static class Summary {
+        private final IntSummaryStatistics scores = new IntSummaryStatistics();
+        private final IntSummaryStatistics lengths = new IntSummaryStatistics();
+        private final LongSummaryStatistics ticks = new LongSummaryStatistics();
+        private int collisions = 0;
+
+        private void add(GameResult result) {
+            scores.accept(result.score());
+            lengths.accept(result.length());
+            ticks.accept(result.ticks());
+            if (result.collision()) {
+                collisions++;
+            }
+        }
+
+        public IntSummaryStatistics getScores() {
+            return scores;
+        }
+
+        public IntSummaryStatistics getLengths() {
+            return lengths;
+        }
+
+        public LongSummaryStatistics getTicks() {
+            return ticks;
+        }
+
+        public int getCollisions() {
+            return collisions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games %d, score avg %.2f min %d max %d, length avg %.2f max %d, ticks avg %.1f, collisions %d",
+                    scores.getCount(), scores.getAverage(), scores.getMin(), scores.getMax(),
+                    lengths.getAverage(), lengths.getMax(), ticks.getAverage(), collisions);
+        }
+    }
+
+    /**
+     * Creates a BatchRunner that uses every core
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     */
+    public BatchRunner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates count Jobs on the same level and policy
+     * The seed of every game is drawn from its own SplittableRandom, split off one seeded with rootSeed,
+     * so the same rootSeed always gives the same games
+     * @param count number of Jobs
+     * @param rootSeed seed all game seeds are derived from
+     * @param levelArgs command line args passed to GameManager (the level file)
+     * @param mapChoice built-in level choice passed to GameManager
+     * @param policy PolicyFactory that creates the Policy of every game
+     * @param maxTicks tick limit of every game
+     * @return List of count Jobs
+     */
+    public static List<Job> jobs(int count, long rootSeed, String[] levelArgs, int mapChoice, PolicyFactory policy,
+                                 long maxTicks) {
+        SplittableRandom root = new SplittableRandom(rootSeed);
+        List<Job> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            jobs.add(new Job(levelArgs, mapChoice, root.split().nextLong(), policy, maxTicks));
+        }
+        return jobs;
+    }
+
+    /**
+     * Plays every Job, spread over the worker threads, and waits until all of them are done
+     * @param jobs Jobs to be played
+     * @return GameResult of every Job, in the same order as jobs
+     */
+    public List<GameResult> run(List<Job> jobs) {
+        GameResult[] results = new GameResult[jobs.size()];
+        pool.invoke(new PlayTask(jobs, results, 0, jobs.size()));
+        return List.of(results);
+    }
+
+    /**
+     * Plays a range of Jobs, split in halves until a single Job is left, so idle workers can steal the other halves
+     * An empty range (no Jobs at all) is done at once
+     */
+    private static class PlayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Job> jobs;
+        private final GameResult[] results;
+        private final int from;
+        private final int to;
+
+        PlayTask(List<Job> jobs, GameResult[] results, int from, int to) {
+            this.jobs = jobs;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 0) {
+                return;
+            } else if (to - from == 1) {
+                results[from] = play(jobs.get(from));
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PlayTask(jobs, results, from, middle), new PlayTask(jobs, results, middle, to));
+        }
+    }
+
+    /**
+     * Plays a single Job on the calling thread
+     * The Policy gets a SplittableRandom split off one seeded with the seed of the game,
+     * so the policy and the game never share random numbers
+     * @param job Job to be played
+     * @return GameResult of the game
+     */
+    public static GameResult play(Job job) {
+        GameManager game;
+        try {
+            game = new GameManager(job.levelArgs(), job.mapChoice(), job.seed());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        SnakeEngine engine = new SnakeEngine(game);
+        Policy policy = job.policy().create(new SplittableRandom(job.seed()).split());
+        engine.run(job.maxTicks(), policy);
+        return new GameResult(job, game.getScore(), game.getSnakeLength(), game.getTick(), game.isCollision());
+    }
+
+    /**
+     * @param results GameResults to sum up
+     * @return Summary of all results
+     */
+    public static Summary summarize(List<GameResult> results) {
+        Summary summary = new Summary();
+        for (GameResult result : results) {
+            summary.add(result);
+        }
+        return summary;
+    }
+
+    /**
+     * Sums up results per key, for example per level or per policy
+     * @param results GameResults to sum up
+     * @param key Function that gives the key of the Job of a GameResult
+     * @return Summary of every key, in the order the keys were first seen
+     */
+    public static <K> Map<K, Summary> summarizeBy(List<GameResult> results, Function<Job, K> key) {
+        Map<K, Summary> summaries = new LinkedHashMap<>();
+        for (GameResult result : results) {
+            summaries.computeIfAbsent(key.apply(result.job()), k -> new Summary()).add(result);
+        }
+        return summaries;
+    }
+
+    /**
+     * Shuts down the worker threads
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Keeps moving in the same direction, turns with probability turnChance,
+     * and never moves into a WALL, a SNAKE, or off the board if there is another way
+     * Turns go to a random one of the free directions, so the game only ends when the snake is boxed in
+     */
+    private static class RandomPolicy implements Policy {
+        private static final Direction[] DIRECTIONS = Direction.values();
+
+        private final SplittableRandom random;
+        private final double turnChance;
+        private final Direction[] free = new Direction[DIRECTIONS.length];
+
+        RandomPolicy(SplittableRandom random, double turnChance) {
+            this.random = random;
+            this.turnChance = turnChance;
+        }
+
+        @Override
+        public Direction nextMove(GameManager game) {
+            Direction heading = game.getHeading();
+            if (random.nextDouble() >= turnChance && isFree(game, heading)) {
+                return heading;
+            }
+            int count = 0;
+            for (Direction direction : DIRECTIONS) {
+                if (direction != heading.opposite() && isFree(game, direction)) {
+                    free[count++] = direction;
+                }
+            }
+            return count == 0 ? heading : free[random.nextInt(count)];
+        }
+
+        /**
+         * @return true if the head can move in direction: the cell is on the board, not a WALL, and not a SNAKE
+         */
+        private boolean isFree(GameManager game, Direction direction) {
+            int row = game.getHeadRow() + direction.getChangeRow();
+            int col = game.getHeadCol() + direction.getChangeCol();
+            if (row < 0 || col < 0 || row >= game.getMaxRow() || col >= game.getMaxCol()) {
+                return false;
+            }
+            return !game.getLevel().isWall(row, col) && game.getBoard().get(row, col) != GamePieces.SNAKE;
+        }
+    }
+
+    public static void main(String[] args) {
+        int games = 10_000;
+        long seed = 1;
+        long maxTicks = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double turnChance = 0.1;
+        String[] levelArgs = new String[0];
+        int mapChoice = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games" -> games = Integer.parseInt(args[++i]);
+                case "-seed" -> seed = Long.parseLong(args[++i]);
+                case "-ticks" -> maxTicks = Long.parseLong(args[++i]);
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-turn" -> turnChance = Double.parseDouble(args[++i]);
+                default -> {
+                    if (args[i].matches("\\d+")) {
+                        mapChoice = Integer.parseInt(args[i]);
+                    } else {
+                        levelArgs = new String[]{args[i]};
+                    }
+                }
+            }
+        }
+
+        double chance = turnChance;
+        List<Job> jobs = jobs(games, seed, levelArgs, mapChoice, random -> new RandomPolicy(random, chance), maxTicks);
+        try (BatchRunner runner = new BatchRunner(threads)) {
+            long start = System.nanoTime();
+            List<GameResult> results = runner.run(jobs);
+            long nanos = System.nanoTime() - start;
+            Summary summary = summarize(results);
+            System.out.println(summary);
+            System.out.printf("%d threads, %.2f s, %.0f games/s, %.0f ticks/s%n", threads, nanos / 1e9,
+                    games / (nanos / 1e9), summary.getTicks().getSum() / (nanos / 1e9));
+        }
+    }
+}
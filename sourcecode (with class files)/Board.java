@@ -0,0 +1,339 @@
+/**
+ * Board.java
+ * Contains the gamePieces of the play area
+ * Every cell is stored as the ordinal of its gamePiece, one byte per cell, and is addressed as row * cols + col.
+ * The board is split into CHUNK_SIZE x CHUNK_SIZE chunks that are only allocated when a cell in them is set
+ * to something else than what the whole chunk holds. Until then the chunk is a shared read-only array that is filled
+ * with a single gamePiece, so a huge level only takes memory for the chunks with walls or the snake in them.
+ * Chunks that are not owned by this board (shared ones, or the chunks of a template from resetTo)
+ * are copied before they are changed
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class Board {
+    static final int CHUNK_BITS = 6;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    private static final GamePieces[] PIECES = GamePieces.values();
+    private static final byte[][] UNIFORM_CHUNKS = new byte[PIECES.length][];
+
+    static {
+        for (GamePieces piece : PIECES) {
+            UNIFORM_CHUNKS[piece.ordinal()] = new byte[CHUNK_CELLS];
+            Arrays.fill(UNIFORM_CHUNKS[piece.ordinal()], (byte) piece.ordinal());
+        }
+    }
+
+    private final int rows; //height, y-axis
+    private final int cols; //width, x-axis
+    private final int chunkRows;
+    private final int chunkCols;
+    private final byte[][] chunks;
+    private final boolean[] owned;
+
+    /**
+     * Creates a new Board where every cell is EMPTY, no chunk is allocated yet
+     * @param rows number of rows (height)
+     * @param cols number of columns (width)
+     */
+    Board(int rows, int cols) {
+        if (rows <= 0 || cols <= 0) {
+            throw new IllegalArgumentException("Board size must be over 0, was " + cols + "x" + rows);
+        }
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Board size is too big, was " + cols + "x" + rows);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.chunkRows = (rows + CHUNK_MASK) >>> CHUNK_BITS;
+        this.chunkCols = (cols + CHUNK_MASK) >>> CHUNK_BITS;
+        this.chunks = new byte[chunkRows * chunkCols][];
+        this.owned = new boolean[chunks.length];
+        Arrays.fill(chunks, UNIFORM_CHUNKS[GamePieces.EMPTY.ordinal()]);
+    }
+
+    /**
+     * @param row row int of the cell
+     * @param col col int of the cell
+     * @return gamePiece at board[row][col]
+     */
+    public GamePieces get(int row, int col) {
+        return PIECES[chunks[chunkOf(row, col)][offsetOf(row, col)]];
+    }
+
+    /**
+     * @param cell cell int (row * cols + col)
+     * @return gamePiece at the cell
+     */
+    public GamePieces get(int cell) {
+        return PIECES[getOrdinal(cell)];
+    }
+
+    /**
+     * Sets the gamePiece of a cell
+     * @param cell cell int (row * cols + col)
+     * @param piece gamePiece to be placed
+     */
+    public void set(int cell, GamePieces piece) {
+        int row = cell / cols;
+        set(row, cell - row * cols, piece);
+    }
+
+    /**
+     * Sets the gamePiece of a cell, the chunk of the cell is allocated (or copied) first if this board does not own it
+     * @param row row int of the cell
+     * @param col col int of the cell
+     * @param piece gamePiece to be placed
+     */
+    public void set(int row, int col, GamePieces piece) {
+        int chunk = chunkOf(row, col);
+        int offset = offsetOf(row, col);
+        byte ordinal = (byte) piece.ordinal();
+        if (!owned[chunk]) {
+            if (chunks[chunk][offset] == ordinal) {
+                return;
+            }
+            chunks[chunk] = chunks[chunk].clone();
+            owned[chunk] = true;
+        }
+        chunks[chunk][offset] = ordinal;
+    }
+
+    /**
+     * Sets the gamePiece of every cell of a rectangle, used to place walls
+     * Chunks the rectangle covers completely become the shared chunk of piece, the rest are filled row by row,
+     * so the time taken depends on the edges of the rectangle and not on its area
+     * @param upRow top row of the rectangle
+     * @param lowRow bottom row of the rectangle (inclusive)
+     * @param leftCol leftmost column of the rectangle
+     * @param rightCol rightmost column of the rectangle (inclusive)
+     * @param piece gamePiece to be placed
+     */
+    public void fill(int upRow, int lowRow, int leftCol, int rightCol, GamePieces piece) {
+        byte ordinal = (byte) piece.ordinal();
+        for (int chunkRow = upRow >>> CHUNK_BITS; chunkRow <= lowRow >>> CHUNK_BITS; chunkRow++) {
+            int firstRow = chunkRow << CHUNK_BITS;
+            int fromRow = Math.max(upRow, firstRow) - firstRow;
+            int toRow = Math.min(lowRow, firstRow + CHUNK_MASK) - firstRow;
+            boolean coversRows = fromRow == 0 && toRow + 1 >= Math.min(CHUNK_SIZE, rows - firstRow);
+            for (int chunkCol = leftCol >>> CHUNK_BITS; chunkCol <= rightCol >>> CHUNK_BITS; chunkCol++) {
+                int chunk = chunkRow * chunkCols + chunkCol;
+                int firstCol = chunkCol << CHUNK_BITS;
+                int fromCol = Math.max(leftCol, firstCol) - firstCol;
+                int toCol = Math.min(rightCol, firstCol + CHUNK_MASK) - firstCol;
+                if (coversRows && fromCol == 0 && toCol + 1 >= Math.min(CHUNK_SIZE, cols - firstCol)) {
+                    chunks[chunk] = UNIFORM_CHUNKS[ordinal];
+                    owned[chunk] = false;
+                    continue;
+                }
+                if (chunks[chunk] == UNIFORM_CHUNKS[ordinal]) {
+                    continue;
+                }
+                if (!owned[chunk]) {
+                    chunks[chunk] = chunks[chunk].clone();
+                    owned[chunk] = true;
+                }
+                for (int row = fromRow; row <= toRow; row++) {
+                    Arrays.fill(chunks[chunk], row << CHUNK_BITS | fromCol, (row << CHUNK_BITS | toCol) + 1, ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of rows (height)
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of columns (width)
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @param cell row * cols + col
+     * @return ordinal of the gamePiece in cell
+     */
+    public byte getOrdinal(int cell) {
+        int row = cell / cols;
+        int col = cell - row * cols;
+        return chunks[chunkOf(row, col)][offsetOf(row, col)];
+    }
+
+    /**
+     * Makes this board the same as template, in time proportional to the number of chunks and not the number of cells
+     * Chunks this board owns are overwritten with an array copy, every other chunk is shared with template,
+     * so template must never change afterwards (like the Template of a Level)
+     * @param template Board of the same size
+     */
+    public void resetTo(Board template) {
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (owned[chunk]) {
+                System.arraycopy(template.chunks[chunk], 0, chunks[chunk], 0, CHUNK_CELLS);
+            } else {
+                chunks[chunk] = template.chunks[chunk];
+            }
+        }
+    }
+
+    /**
+     * Makes this board the same as source, see copyChunkFrom
+     * @param source Board of the same size
+     */
+    void copyFrom(Board source) {
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            copyChunkFrom(source, chunk);
+        }
+    }
+
+    /**
+     * Makes a chunk of this board the same as in source, it is shared if source does not own it (it never changes),
+     * and copied otherwise
+     * Used by BoardPublisher, where source may be changed by another thread during the copy. chunks and owned of source
+     * are then read in no particular order, so the chunk may end up shared with a chunk source still changes.
+     * BoardPublisher throws such a copy away and copies every chunk it touched again, which replaces a chunk shared
+     * by mistake (it is not owned here) with a copy or a chunk that never changes
+     * @param source Board of the same size
+     * @param chunk index of the chunk
+     */
+    void copyChunkFrom(Board source, int chunk) {
+        byte[] cells = source.chunks[chunk];
+        if (!source.owned[chunk]) {
+            chunks[chunk] = cells;
+            owned[chunk] = false;
+        } else if (owned[chunk]) {
+            System.arraycopy(cells, 0, chunks[chunk], 0, CHUNK_CELLS);
+        } else {
+            chunks[chunk] = cells.clone();
+            owned[chunk] = true;
+        }
+    }
+
+    /**
+     * Replaces every owned chunk that holds a single gamePiece with the shared chunk of that gamePiece
+     * Used once a board is built and will not change anymore, like the Template of a Level
+     */
+    void compact() {
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (owned[chunk]) {
+                byte[] cells = chunks[chunk];
+                byte first = cells[0];
+                int i = 1;
+                while (i < CHUNK_CELLS && cells[i] == first) {
+                    i++;
+                }
+                if (i == CHUNK_CELLS) {
+                    chunks[chunk] = UNIFORM_CHUNKS[first];
+                    owned[chunk] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the ordinal of every gamePiece into dst, one byte per cell (row * cols + col),
+     * without changing the position of dst
+     * @param dst ByteBuffer to copy into
+     * @param offset index in dst of the first cell
+     */
+    public void copyTo(ByteBuffer dst, int offset) {
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col += CHUNK_SIZE) {
+                int length = Math.min(CHUNK_SIZE, cols - col);
+                dst.put(offset + row * cols + col, chunks[chunkOf(row, col)], offsetOf(row, col), length);
+            }
+        }
+    }
+
+    /**
+     * @return number of chunks
+     */
+    int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * @return number of chunks in a row of chunks, chunk indexes go row by row
+     */
+    int getChunkCols() {
+        return chunkCols;
+    }
+
+    /**
+     * @param chunk index of the chunk
+     * @return ordinal of the gamePiece in every cell of the chunk if it is the shared chunk of that gamePiece,
+     * -1 otherwise (an owned chunk may still hold a single gamePiece)
+     */
+    int uniformOrdinal(int chunk) {
+        byte[] cells = chunks[chunk];
+        return cells == UNIFORM_CHUNKS[cells[0]] ? cells[0] : -1;
+    }
+
+    /**
+     * @param chunk index of the chunk
+     * @return the cells of the chunk, CHUNK_SIZE per row (cells past the edge of the board are EMPTY),
+     * only to be read and only until this board changes
+     */
+    byte[] chunkCells(int chunk) {
+        return chunks[chunk];
+    }
+
+    /**
+     * @param row row int of a cell
+     * @param col col int of a cell
+     * @return index of the chunk the cell is in
+     */
+    int chunkOf(int row, int col) {
+        return (row >>> CHUNK_BITS) * chunkCols + (col >>> CHUNK_BITS);
+    }
+
+    private static int offsetOf(int row, int col) {
+        return (row & CHUNK_MASK) << CHUNK_BITS | (col & CHUNK_MASK);
+    }
+
+    /**
+     * Counts the cells of a chunk that hold piece, only cells inside the board are counted
+     * @param chunk index of the chunk
+     * @param piece gamePiece to count
+     * @return number of cells with that gamePiece
+     */
+    int count(int chunk, GamePieces piece) {
+        int firstRow = chunk / chunkCols << CHUNK_BITS;
+        int firstCol = chunk % chunkCols << CHUNK_BITS;
+        int height = Math.min(CHUNK_SIZE, rows - firstRow);
+        int width = Math.min(CHUNK_SIZE, cols - firstCol);
+        byte[] cells = chunks[chunk];
+        if (cells == UNIFORM_CHUNKS[piece.ordinal()]) {
+            return height * width;
+        } else if (cells == UNIFORM_CHUNKS[cells[0]]) {
+            return 0;
+        }
+        return countIn(cells, height, width, (byte) piece.ordinal());
+    }
+
+    private static int countIn(byte[] cells, int height, int width, byte ordinal) {
+        int count = 0;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (cells[row << CHUNK_BITS | col] == ordinal) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of cells (rows * cols)
+     */
+    public int size() {
+        return rows * cols;
+    }
+}
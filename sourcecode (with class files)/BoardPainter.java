@@ -0,0 +1,292 @@
+/**
+ * BoardPainter.java
+ * Draws the gameBoard, one cellSize square per gamePiece
+ * Used by MainGame to paint the MainGamePanel, and by SnakeBenchmark to measure painting without a window
+ * The static layer (EMPTY floor and WALLs) is drawn into images, every frame then only copies them and draws the
+ * dynamic layer (SNAKE and APPLEs) on top
+ * The static layer is cut into tiles of one Board chunk each, a tile is only drawn once a frame needs it, and only the
+ * MAX_TILES tiles used last are kept, so a huge level costs no more memory than the part of it the view shows.
+ * Tiles are drawn from the walls of the Level, one fillRect per wall, and not cell by cell.
+ * If a frame needs more tiles than are kept (the whole of a big level), the floor and the walls inside the clip are
+ * drawn straight onto it instead
+ */
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class BoardPainter {
+    private static final Color WALL_COLOR = new Color(130, 100, 70);
+    private static final Color SNAKE_COLOR = new Color(255, 255, 150);
+    private static final Color EMPTY_COLOR = new Color(154, 247, 100);
+    private static final int TILE_CELLS = Board.CHUNK_SIZE;
+    private static final int MAX_TILES = 12;
+
+    private final int cellSize;
+    private final Map<Integer, BufferedImage> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+            if (size() > MAX_TILES) {
+                eldest.getValue().flush();
+                return true;
+            }
+            return false;
+        }
+    };
+    private Level staticLevel;
+
+    /**
+     * Creates a new BoardPainter
+     * @param cellSize size in pixels of a single gamePiece
+     */
+    BoardPainter(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Draws the game inside the clip of graphics,
+     * copies the static layer tiles and then draws the SNAKE and APPLE on top.
+     * A tile is drawn the first time it is needed, and again after invalidate or if the level changed
+     * @param graphics graphics to draw
+     * @param game GameManager of the game to draw
+     * @param config GraphicsConfiguration of the panel, so the image matches the screen (null if there is none)
+     */
+    public void paint(Graphics graphics, GameManager game, GraphicsConfiguration config) {
+        Board board = game.getBoard();
+        paintStaticLayer(graphics, game.getLevel(), config);
+
+        int firstRow = 0;
+        int firstCol = 0;
+        int endRow = board.getRows();
+        int endCol = board.getCols();
+        Rectangle clip = graphics.getClipBounds();
+        if (clip != null) {
+            firstRow = Math.max(firstRow, clip.y / cellSize);
+            firstCol = Math.max(firstCol, clip.x / cellSize);
+            endRow = Math.min(endRow, (clip.y + clip.height + cellSize - 1) / cellSize);
+            endCol = Math.min(endCol, (clip.x + clip.width + cellSize - 1) / cellSize);
+        }
+
+        SnakeBody snake = game.getSnakeBody();
+        if ((long) (endRow - firstRow) * (endCol - firstCol) > snake.size()) {
+            graphics.setColor(SNAKE_COLOR);
+            int maxCol = board.getCols();
+            for (int i = 0; i < snake.size(); i++) {
+                int row = snake.get(i) / maxCol;
+                int col = snake.get(i) % maxCol;
+                if (row >= firstRow && row < endRow && col >= firstCol && col < endCol) {
+                    graphics.fillRect(col * cellSize, row * cellSize, cellSize, cellSize);
+                }
+            }
+            if (game.getAppleRow() >= 0) {
+                graphics.setColor(colorOf(board.get(game.getAppleRow(), game.getAppleCol())));
+                graphics.fillRect(game.getAppleCol() * cellSize, game.getAppleRow() * cellSize, cellSize, cellSize);
+            }
+        } else {
+            for (int i = firstRow; i < endRow; i++) {
+                for (int j = firstCol; j < endCol; j++) {
+                    GamePieces piece = board.get(i, j);
+                    if (piece != GamePieces.EMPTY && piece != GamePieces.WALL) {
+                        graphics.setColor(colorOf(piece));
+                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the game from snapshots taken by GameLoop, copies the static layer image
+     * and then draws the APPLE and SNAKE of current on top.
+     * The head is drawn between its position in previous and current, alpha of the way,
+     * so the snake moves smoothly when frames are drawn more often than ticks happen
+     * @param graphics graphics to draw
+     * @param level Level of the game, only its walls are drawn
+     * @param previous snapshot of the tick before current, null if there is none
+     * @param current snapshot to draw
+     * @param alpha how far the head is between previous and current, between 0 and 1
+     * @param config GraphicsConfiguration of the panel, so the image matches the screen (null if there is none)
+     */
+    public void paint(Graphics graphics, Level level, GameSnapshot previous, GameSnapshot current, double alpha,
+                      GraphicsConfiguration config) {
+        paintStaticLayer(graphics, level, config);
+        Rectangle clip = graphics.getClipBounds();
+        int maxCol = level.getCols();
+
+        if (current.appleCell() >= 0) {
+            graphics.setColor(colorOf(current.applePiece()));
+            fillCell(graphics, clip, current.appleCell() % maxCol * cellSize, current.appleCell() / maxCol * cellSize);
+        }
+
+        int[] snake = current.snake();
+        graphics.setColor(SNAKE_COLOR);
+        for (int i = 1; i < snake.length; i++) {
+            fillCell(graphics, clip, snake[i] % maxCol * cellSize, snake[i] / maxCol * cellSize);
+        }
+
+        double headRow = current.head() / maxCol;
+        double headCol = current.head() % maxCol;
+        if (previous != null && alpha < 1) {
+            headRow = previous.head() / maxCol + (headRow - previous.head() / maxCol) * alpha;
+            headCol = previous.head() % maxCol + (headCol - previous.head() % maxCol) * alpha;
+        }
+        fillCell(graphics, clip, (int) Math.round(headCol * cellSize), (int) Math.round(headRow * cellSize));
+    }
+
+    /**
+     * Draws one cellSize square with the current color of graphics, if it is inside clip
+     * @param x pixel x of the left of the square
+     * @param y pixel y of the top of the square
+     */
+    private void fillCell(Graphics graphics, Rectangle clip, int x, int y) {
+        if (clip == null || (x < clip.x + clip.width && x + cellSize > clip.x
+                && y < clip.y + clip.height && y + cellSize > clip.y)) {
+            graphics.fillRect(x, y, cellSize, cellSize);
+        }
+    }
+
+    /**
+     * Copies the static layer tiles of level that overlap the clip of graphics, drawing the missing ones first
+     * If more tiles overlap the clip than are kept, draws the floor and walls inside the clip of graphics instead
+     */
+    private void paintStaticLayer(Graphics graphics, Level level, GraphicsConfiguration config) {
+        if (staticLevel != level) {
+            invalidate();
+            staticLevel = level;
+        }
+        Rectangle area = new Rectangle(0, 0, level.getCols() * cellSize, level.getRows() * cellSize);
+        Rectangle clip = graphics.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        if (area.isEmpty()) {
+            return;
+        }
+        int tilePixels = TILE_CELLS * cellSize;
+        int firstTileRow = area.y / tilePixels;
+        int firstTileCol = area.x / tilePixels;
+        int lastTileRow = (area.y + area.height - 1) / tilePixels;
+        int lastTileCol = (area.x + area.width - 1) / tilePixels;
+        if ((lastTileRow - firstTileRow + 1) * (lastTileCol - firstTileCol + 1) > MAX_TILES) {
+            drawWalls(graphics, level, area);
+            return;
+        }
+        for (int tileRow = firstTileRow; tileRow <= lastTileRow; tileRow++) {
+            for (int tileCol = firstTileCol; tileCol <= lastTileCol; tileCol++) {
+                graphics.drawImage(tile(level, tileRow, tileCol, config), tileCol * tilePixels, tileRow * tilePixels,
+                        null);
+            }
+        }
+    }
+
+    /**
+     * Throws away every static layer tile, they are drawn again on the next paint
+     * Called when the level changes
+     */
+    public void invalidate() {
+        for (BufferedImage tile : tiles.values()) {
+            tile.flush();
+        }
+        tiles.clear();
+        staticLevel = null;
+    }
+
+    /**
+     * @return the static layer tile of level at tileRow, tileCol, drawn with the floor and walls if it is not kept
+     */
+    private BufferedImage tile(Level level, int tileRow, int tileCol, GraphicsConfiguration config) {
+        int tileCols = (level.getCols() + TILE_CELLS - 1) / TILE_CELLS;
+        int key = tileRow * tileCols + tileCol;
+        BufferedImage tile = tiles.get(key);
+        if (tile != null) {
+            return tile;
+        }
+        int x = tileCol * TILE_CELLS * cellSize;
+        int y = tileRow * TILE_CELLS * cellSize;
+        int width = Math.min(TILE_CELLS, level.getCols() - tileCol * TILE_CELLS) * cellSize;
+        int height = Math.min(TILE_CELLS, level.getRows() - tileRow * TILE_CELLS) * cellSize;
+        tile = config != null
+                ? config.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tile.createGraphics();
+        graphics.translate(-x, -y);
+        drawWalls(graphics, level, new Rectangle(x, y, width, height));
+        graphics.dispose();
+        tiles.put(key, tile);
+        return tile;
+    }
+
+    /**
+     * Draws the EMPTY floor inside area, and every wall that overlaps area with a single fillRect,
+     * the walls are found with the WallIndex of level
+     * @param area pixels to draw
+     */
+    private void drawWalls(Graphics graphics, Level level, Rectangle area) {
+        graphics.setColor(EMPTY_COLOR);
+        graphics.fillRect(area.x, area.y, area.width, area.height);
+        graphics.setColor(WALL_COLOR);
+        level.getWallIndex().forEachWall(area.y / cellSize, (area.y + area.height - 1) / cellSize,
+                area.x / cellSize, (area.x + area.width - 1) / cellSize,
+                wall -> graphics.fillRect(wall.getWallLeftBound() * cellSize, wall.getWallUpBound() * cellSize,
+                        (wall.getWallRightBound() - wall.getWallLeftBound() + 1) * cellSize,
+                        (wall.getWallLowBound() - wall.getWallUpBound() + 1) * cellSize));
+    }
+
+    /**
+     * Loops over the cells of the gameBoard that are inside the clip of graphics,
+     * and draws them on the MainGamePanel depending on the gamePiece
+     * If graphics has no clip, the whole gameBoard is drawn
+     * @param graphics graphics to draw
+     * @param board Board to draw
+     */
+    public void fillBoard(Graphics graphics, Board board) {
+        int firstRow = 0;
+        int firstCol = 0;
+        int endRow = board.getRows();
+        int endCol = board.getCols();
+
+        Rectangle clip = graphics.getClipBounds();
+        if (clip != null) {
+            firstRow = Math.max(firstRow, clip.y / cellSize);
+            firstCol = Math.max(firstCol, clip.x / cellSize);
+            endRow = Math.min(endRow, (clip.y + clip.height + cellSize - 1) / cellSize);
+            endCol = Math.min(endCol, (clip.x + clip.width + cellSize - 1) / cellSize);
+        }
+
+        Color currentColor = null;
+        for(int i = firstRow; i < endRow; i++) {
+            for(int j = firstCol; j < endCol; j++) {
+                Color color = colorOf(board.get(i, j));
+                if (color != currentColor) {
+                    graphics.setColor(color);
+                    currentColor = color;
+                }
+                graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
+            }
+        }
+    }
+
+    /**
+     * Color that a gamePiece is drawn with
+     * WALL - light brown
+     * SNAKE - light yellow
+     * APPLE - red
+     * GOLDAPPLE - yellow
+     * SPEEDAPPLE - blue
+     * PUMPKINAPPLE - orange
+     * EMPTY - light grass green
+     * @param piece gamePiece to be drawn
+     * @return Color of the gamePiece
+     */
+    public static Color colorOf(GamePieces piece) {
+        return switch (piece) {
+            case WALL -> WALL_COLOR;
+            case SNAKE -> SNAKE_COLOR;
+            case APPLE -> Color.red;
+            case GOLDAPPLE -> Color.YELLOW;
+            case SPEEDAPPLE -> Color.BLUE;
+            case PUMPKINAPPLE -> Color.ORANGE;
+            default -> EMPTY_COLOR;
+        };
+    }
+}
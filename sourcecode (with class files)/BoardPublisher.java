@@ -0,0 +1,204 @@
+/**
+ * BoardPublisher.java
+ * Publishes the board of a GameManager after every change, so threads other than the one that ticks the game
+ * (a renderer, a spectator, a sampler, a broadcaster) read a whole, consistent frame instead of the live Board
+ * It is a seqlock in its latch form: there are two copies of the board and a sequence number that says which one
+ * readers use. publish bumps the sequence so readers go to the other copy, brings the first copy up to date, bumps it
+ * again, and brings the second copy up to date. A reader copies the copy the sequence points at and reads again if the
+ * sequence changed meanwhile, so the thread that ticks never waits or locks, and a reader only reads again when a
+ * tick was published during its read
+ * The copies are brought up to date with the ChangedCells of the tick, so publishing costs a few cells per tick.
+ * Every chunk of a copy is stamped with the sequence it last changed at, so a read only copies the chunks that changed
+ * since the last read into the same Frame, and chunks that only hold walls or EMPTY cells are shared, not copied
+ * GameManager publishes after every move and newGame once getPublisher was called
+ */
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+public class BoardPublisher {
+    private final GameManager game;
+    private final Board[] copies = new Board[2];
+    private final long[] ticks = new long[2];
+    private final int[] scores = new int[2];
+    private final int[] speedIncrs = new int[2];
+    private final int[] heads = new int[2];
+    private final boolean[] collisions = new boolean[2];
+    private final long[][] chunkSequences = new long[2][];
+    private volatile long sequence = 0;
+
+    /**
+     * Creates a new BoardPublisher with the game as it is now published
+     * @param game GameManager to publish, only the thread that changes it may publish
+     */
+    BoardPublisher(GameManager game) {
+        this.game = game;
+        Board board = game.getBoard();
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new Board(board.getRows(), board.getCols());
+            copies[i].copyFrom(board);
+            chunkSequences[i] = new long[board.getChunkCount()];
+            update(i, 0);
+        }
+    }
+
+    /**
+     * Publishes the game as it is now, called by GameManager on the thread that changes it, after every change
+     * Every fence keeps the bump of the sequence ahead of the changes to the copy readers just left
+     */
+    void publish() {
+        long current = sequence;
+        sequence = current + 1;
+        VarHandle.storeStoreFence();
+        update((int) current & 1, current + 2);
+        sequence = current + 2;
+        VarHandle.storeStoreFence();
+        update((int) (current + 1) & 1, current + 2);
+    }
+
+    /**
+     * Brings a copy up to date with the game, the whole board is only copied if every cell changed (a new game)
+     * @param published sequence once the publish is done, the chunks that changed are stamped with it
+     */
+    private void update(int copy, long published) {
+        Board board = game.getBoard();
+        ChangedCells changedCells = game.getChangedCells();
+        if (changedCells.isAll()) {
+            copies[copy].copyFrom(board);
+            Arrays.fill(chunkSequences[copy], published);
+        } else {
+            for (int i = 0; i < changedCells.size(); i++) {
+                int cell = changedCells.get(i);
+                copies[copy].set(cell, board.get(cell));
+                chunkSequences[copy][board.chunkOf(cell / board.getCols(), cell % board.getCols())] = published;
+            }
+        }
+        ticks[copy] = game.getTick();
+        scores[copy] = game.getScore();
+        speedIncrs[copy] = game.getSpeedIncr();
+        heads[copy] = game.getSnakeLength() == 0 ? -1 : game.getSnakeBody().head();
+        collisions[copy] = game.isCollision();
+    }
+
+    /**
+     * @return a new Frame to read into, with a Board of the size of the game
+     */
+    public Frame newFrame() {
+        return new Frame(new Board(copies[0].getRows(), copies[0].getCols()));
+    }
+
+    /**
+     * Copies the latest published frame into frame, from any thread and without locking
+     * Only the chunks that changed since frame was last read are copied. The copy is made again until no publish
+     * happened while it was made, so frame is never torn: a chunk copied during a copy that was thrown away may hold
+     * anything (even the live chunk of a copy being updated), so it is copied again on every later try until one
+     * succeeds, whether or not its sequence says it changed
+     * @param frame Frame from newFrame, only used by one reader at a time
+     * @return false if frame already held the latest frame, it is then left as it is
+     */
+    public boolean read(Frame frame) {
+        boolean retried = false;
+        while (true) {
+            long current = sequence;
+            if (current == frame.sequence) {
+                return false;
+            }
+            int copy = (int) current & 1;
+            long[] changed = chunkSequences[copy];
+            int copiedCount = 0;
+            for (int chunk = 0; chunk < changed.length; chunk++) {
+                if (changed[chunk] > frame.sequence || frame.stale[chunk]) {
+                    frame.board.copyChunkFrom(copies[copy], chunk);
+                    frame.copied[copiedCount++] = chunk;
+                }
+            }
+            frame.tick = ticks[copy];
+            frame.score = scores[copy];
+            frame.speedIncr = speedIncrs[copy];
+            frame.head = heads[copy];
+            frame.collision = collisions[copy];
+            VarHandle.loadLoadFence();
+            if (sequence == current) {
+                if (retried) {
+                    Arrays.fill(frame.stale, false);
+                }
+                frame.sequence = current;
+                return true;
+            }
+            for (int i = 0; i < copiedCount; i++) {
+                frame.stale[frame.copied[i]] = true;
+            }
+            retried = true;
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * A consistent copy of the board and state of a game after a tick, filled in by read and reused for every read
+     */
+    public static final class Frame {
+        private final Board board;
+        private final boolean[] stale;
+        private final int[] copied;
+        private long sequence = -1;
+        private long tick;
+        private int score;
+        private int speedIncr;
+        private int head;
+        private boolean collision;
+
+        private Frame(Board board) {
+            this.board = board;
+            this.stale = new boolean[board.getChunkCount()];
+            this.copied = new int[board.getChunkCount()];
+        }
+
+        /**
+         * @return copy of the board, it is changed by the next read
+         */
+        public Board getBoard() {
+            return board;
+        }
+
+        /**
+         * @return how many times the game was published before the frame, 0 for the game when the BoardPublisher was made
+         */
+        public long getPublishCount() {
+            return sequence >>> 1;
+        }
+
+        /**
+         * @return number of the tick the frame was published after
+         */
+        public long getTick() {
+            return tick;
+        }
+
+        /**
+         * @return score after the tick
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * @return speedIncr after the tick
+         */
+        public int getSpeedIncr() {
+            return speedIncr;
+        }
+
+        /**
+         * @return cell of the snake head, -1 if there is none
+         */
+        public int getHead() {
+            return head;
+        }
+
+        /**
+         * @return true if the snake collided on the tick
+         */
+        public boolean isCollision() {
+            return collision;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * ChangedCells.java
+ * Contains the cells of the board (row * maxCol + col) that changed since the last clear
+ * GameManager clears it at the start of every tick, so afterwards it holds what that tick changed
+ * (at most the new head, the old tail, and a new APPLE).
+ * If more cells change than fit (for example when a new game starts), it only remembers that everything changed
+ */
+public class ChangedCells {
+    private final int[] cells;
+    private int size = 0;
+    private boolean all = false;
+
+    /**
+     * Creates a new, empty ChangedCells
+     * @param capacity number of cells it can hold before it switches to everything changed
+     */
+    ChangedCells(int capacity) {
+        this.cells = new int[capacity];
+    }
+
+    /**
+     * Adds a changed cell
+     * @param cell cell that changed
+     */
+    public void add(int cell) {
+        if (all) {
+            return;
+        }
+        if (size == cells.length) {
+            all = true;
+        } else {
+            cells[size] = cell;
+            size++;
+        }
+    }
+
+    /**
+     * Marks every cell of the board as changed
+     */
+    public void addAll() {
+        all = true;
+    }
+
+    /**
+     * Removes every changed cell
+     */
+    public void clear() {
+        size = 0;
+        all = false;
+    }
+
+    /**
+     * @return true if every cell of the board has to be treated as changed
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    /**
+     * @return number of changed cells, not meaningful if isAll is true
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index int between 0 (inclusive) and size (exclusive)
+     * @return the changed cell at index
+     */
+    public int get(int index) {
+        return cells[index];
+    }
+}
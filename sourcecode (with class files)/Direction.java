@@ -0,0 +1,52 @@
+/**
+ * Direction.java
+ * Enum that contains the four directions the SNAKE can move in
+ */
+
+/**
+ * LEFT - moves the head one column to the left
+ * RIGHT - moves the head one column to the right
+ * DOWN - moves the head one row down
+ * UP - moves the head one row up
+ * The order matches moveInt in MainGame (0 - LEFT, 1 - RIGHT, 2 - DOWN, 3 - UP)
+ */
+public enum Direction {
+    LEFT(0, -1),
+    RIGHT(0, 1),
+    DOWN(1, 0),
+    UP(-1, 0);
+
+    private final int changeRow;
+    private final int changeCol;
+
+    Direction(int changeRow, int changeCol) {
+        this.changeRow = changeRow;
+        this.changeCol = changeCol;
+    }
+
+    /**
+     * @return int that represents how much the snake head moves in rows
+     */
+    public int getChangeRow() {
+        return changeRow;
+    }
+
+    /**
+     * @return int that represents how much the snake head moves in columns
+     */
+    public int getChangeCol() {
+        return changeCol;
+    }
+
+    /**
+     * @return the Direction that points the opposite way
+     */
+    public Direction opposite() {
+        return switch (this) {
+            case LEFT -> RIGHT;
+            case RIGHT -> LEFT;
+            case DOWN -> UP;
+            case UP -> DOWN;
+        };
+    }
+}
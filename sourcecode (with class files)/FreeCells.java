@@ -0,0 +1,311 @@
+/**
+ * FreeCells.java
+ * Index of all EMPTY pieces on the board, so a random EMPTY piece can be picked without going through the board,
+ * and without memory for every cell of a huge board (see Board)
+ * For every chunk of the Board it keeps the number of EMPTY pieces, in a Fenwick tree so the chunk of the slot-th
+ * EMPTY piece is found in O(log chunks), and a bitmap of its EMPTY pieces (one long per row of the chunk)
+ * so the piece is then found with a few bit counts.
+ * A chunk that is all EMPTY or has no EMPTY piece has no bitmap, it is only allocated once that changes.
+ * Boards of up to DENSE_CELLS cells keep every free cell densely in an array instead, with the slot of every cell
+ * in a second one, so get is a single array read and add and remove are constant time (remove swaps the last free
+ * cell into the removed slot). That takes 8 bytes per cell and copyFrom copies them, so huge boards use the chunks.
+ * GameManager tells it about every cell that becomes EMPTY (add) or stops being EMPTY (remove)
+ */
+import java.util.Arrays;
+
+public class FreeCells {
+    static final int DENSE_CELLS = 128 * 128;
+
+    private final int rows;
+    private final int cols;
+    private final int chunkCols;
+    private final int[] counts;
+    private final int[] tree;
+    private final int highestBit;
+    private final long[][] bits;
+    private final boolean[] owned;
+    private final int[] denseCells;
+    private final int[] densePositions;
+    private int size = 0;
+
+    /**
+     * Creates a new FreeCells where no cell is free
+     * @param board Board whose EMPTY pieces are indexed
+     */
+    FreeCells(Board board) {
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        this.chunkCols = (cols + Board.CHUNK_SIZE - 1) >>> Board.CHUNK_BITS;
+        this.counts = new int[board.getChunkCount()];
+        this.tree = new int[counts.length + 1];
+        this.highestBit = Integer.highestOneBit(counts.length);
+        this.bits = new long[counts.length][];
+        this.owned = new boolean[counts.length];
+        if (board.size() <= DENSE_CELLS) {
+            this.denseCells = new int[board.size()];
+            this.densePositions = new int[board.size()];
+            Arrays.fill(densePositions, -1);
+        } else {
+            this.denseCells = null;
+            this.densePositions = null;
+        }
+    }
+
+    /**
+     * Indexes every EMPTY piece of board again, used once a board has been built without telling FreeCells
+     * @param board Board this FreeCells was created for
+     */
+    public void addAll(Board board) {
+        if (denseCells != null) {
+            Arrays.fill(densePositions, -1);
+            size = 0;
+            for (int cell = 0; cell < densePositions.length; cell++) {
+                if (board.get(cell) == GamePieces.EMPTY) {
+                    addDense(cell);
+                }
+            }
+            return;
+        }
+        Arrays.fill(tree, 0);
+        size = 0;
+        for (int chunk = 0; chunk < counts.length; chunk++) {
+            counts[chunk] = board.count(chunk, GamePieces.EMPTY);
+            bits[chunk] = null;
+            owned[chunk] = false;
+            if (counts[chunk] != 0 && counts[chunk] != area(chunk)) {
+                long[] chunkBits = allocate(chunk);
+                int firstRow = firstRow(chunk);
+                int firstCol = firstCol(chunk);
+                for (int row = 0; row < height(chunk); row++) {
+                    for (int col = 0; col < width(chunk); col++) {
+                        if (board.get(firstRow + row, firstCol + col) == GamePieces.EMPTY) {
+                            chunkBits[row] |= 1L << col;
+                        }
+                    }
+                }
+            }
+            size += counts[chunk];
+            tree[chunk + 1] += counts[chunk];
+            int parent = chunk + 1 + (chunk + 1 & -(chunk + 1));
+            if (parent < tree.length) {
+                tree[parent] += tree[chunk + 1];
+            }
+        }
+    }
+
+    /**
+     * Marks a cell as free, it has to have just become EMPTY
+     * @param row row int of the cell
+     * @param col col int of the cell
+     */
+    public void add(int row, int col) {
+        if (denseCells != null) {
+            addDense(row * cols + col);
+            return;
+        }
+        int chunk = chunkOf(row, col);
+        writableBits(chunk)[row & Board.CHUNK_SIZE - 1] |= 1L << col;
+        update(chunk, 1);
+    }
+
+    /**
+     * Marks a cell as not free, it has to have just stopped being EMPTY
+     * @param row row int of the cell
+     * @param col col int of the cell
+     */
+    public void remove(int row, int col) {
+        if (denseCells != null) {
+            int cell = row * cols + col;
+            int slot = densePositions[cell];
+            size--;
+            int last = denseCells[size];
+            denseCells[slot] = last;
+            densePositions[last] = slot;
+            densePositions[cell] = -1;
+            return;
+        }
+        int chunk = chunkOf(row, col);
+        writableBits(chunk)[row & Board.CHUNK_SIZE - 1] &= ~(1L << col);
+        update(chunk, -1);
+    }
+
+    private void addDense(int cell) {
+        denseCells[size] = cell;
+        densePositions[cell] = size;
+        size++;
+    }
+
+    private void update(int chunk, int change) {
+        counts[chunk] += change;
+        size += change;
+        for (int node = chunk + 1; node < tree.length; node += node & -node) {
+            tree[node] += change;
+        }
+    }
+
+    /**
+     * Makes this the same as other, in time proportional to the number of chunks (or cells, up to DENSE_CELLS)
+     * Bitmaps this owns are overwritten, every other bitmap is shared with other,
+     * so other must never change afterwards (like the Template of a Level)
+     * @param other FreeCells of a Board of the same size
+     */
+    public void copyFrom(FreeCells other) {
+        if (denseCells != null) {
+            System.arraycopy(other.denseCells, 0, denseCells, 0, other.size);
+            System.arraycopy(other.densePositions, 0, densePositions, 0, densePositions.length);
+            size = other.size;
+            return;
+        }
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        System.arraycopy(other.tree, 0, tree, 0, tree.length);
+        size = other.size;
+        for (int chunk = 0; chunk < counts.length; chunk++) {
+            if (!owned[chunk]) {
+                bits[chunk] = other.bits[chunk];
+            } else if (other.bits[chunk] != null) {
+                System.arraycopy(other.bits[chunk], 0, bits[chunk], 0, Board.CHUNK_SIZE);
+            } else {
+                fill(chunk, bits[chunk], counts[chunk] != 0);
+            }
+        }
+    }
+
+    /**
+     * @param cell cell to be checked
+     * @return true if the cell is free
+     */
+    public boolean contains(int cell) {
+        if (densePositions != null) {
+            return densePositions[cell] >= 0;
+        }
+        int row = cell / cols;
+        int col = cell - row * cols;
+        int chunk = chunkOf(row, col);
+        if (bits[chunk] == null) {
+            return counts[chunk] != 0;
+        }
+        return (bits[chunk][row & Board.CHUNK_SIZE - 1] & 1L << col) != 0;
+    }
+
+    /**
+     * Free cells are ordered by chunk, then row by row inside each chunk
+     * (up to DENSE_CELLS, they are in the order they were added in, with removed ones swapped out)
+     * @param slot int between 0 (inclusive) and size (exclusive)
+     * @return the slot-th free cell
+     */
+    public int get(int slot) {
+        if (denseCells != null) {
+            return denseCells[slot];
+        }
+        int chunk = 0;
+        for (int bit = highestBit; bit != 0; bit >>>= 1) {
+            int next = chunk + bit;
+            if (next < tree.length && tree[next] <= slot) {
+                chunk = next;
+                slot -= tree[next];
+            }
+        }
+
+        int chunkRow = chunk / chunkCols;
+        int firstRow = chunkRow << Board.CHUNK_BITS;
+        int firstCol = chunk - chunkRow * chunkCols << Board.CHUNK_BITS;
+        long[] chunkBits = bits[chunk];
+        if (chunkBits == null) {
+            int width = Math.min(Board.CHUNK_SIZE, cols - firstCol);
+            int row = slot / width;
+            return (firstRow + row) * cols + firstCol + slot - row * width;
+        }
+        int row = 0;
+        while (Long.bitCount(chunkBits[row]) <= slot) {
+            slot -= Long.bitCount(chunkBits[row]);
+            row++;
+        }
+        return (firstRow + row) * cols + firstCol + select(chunkBits[row], slot);
+    }
+
+    /**
+     * @return position of the index-th set bit of word, found by halving word instead of clearing bit by bit
+     */
+    private static int select(long word, int index) {
+        int position = 0;
+        for (int half = 32; half != 0; half >>>= 1) {
+            long low = word & -1L >>> 64 - half;
+            int lowCount = Long.bitCount(low);
+            if (index >= lowCount) {
+                index -= lowCount;
+                word >>>= half;
+                position += half;
+            } else {
+                word = low;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * @return number of free cells
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the bitmap of chunk to be changed, allocating or copying it first if this does not own it
+     */
+    private long[] writableBits(int chunk) {
+        if (owned[chunk]) {
+            return bits[chunk];
+        }
+        long[] shared = bits[chunk];
+        long[] chunkBits = allocate(chunk);
+        if (shared != null) {
+            System.arraycopy(shared, 0, chunkBits, 0, Board.CHUNK_SIZE);
+        } else {
+            fill(chunk, chunkBits, counts[chunk] != 0);
+        }
+        return chunkBits;
+    }
+
+    private long[] allocate(int chunk) {
+        bits[chunk] = new long[Board.CHUNK_SIZE];
+        owned[chunk] = true;
+        return bits[chunk];
+    }
+
+    /**
+     * Sets every bit of the cells of chunk that are inside the board if free is true, clears every bit if not
+     */
+    private void fill(int chunk, long[] chunkBits, boolean free) {
+        Arrays.fill(chunkBits, 0);
+        if (free) {
+            Arrays.fill(chunkBits, 0, height(chunk), -1L >>> Board.CHUNK_SIZE - width(chunk));
+        }
+    }
+
+    /**
+     * @return number of cells of chunk that are inside the board
+     */
+    private int area(int chunk) {
+        return height(chunk) * width(chunk);
+    }
+
+    private int chunkOf(int row, int col) {
+        return (row >>> Board.CHUNK_BITS) * chunkCols + (col >>> Board.CHUNK_BITS);
+    }
+
+    private int firstRow(int chunk) {
+        return chunk / chunkCols << Board.CHUNK_BITS;
+    }
+
+    private int firstCol(int chunk) {
+        return chunk % chunkCols << Board.CHUNK_BITS;
+    }
+
+    private int height(int chunk) {
+        return Math.min(Board.CHUNK_SIZE, rows - firstRow(chunk));
+    }
+
+    private int width(int chunk) {
+        return Math.min(Board.CHUNK_SIZE, cols - firstCol(chunk));
+    }
+}
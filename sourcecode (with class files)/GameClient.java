@@ -0,0 +1,299 @@
+/**
+ * GameClient.java
+ * Thin client for a GameServer: keeps a copy of the board that is only ever changed by the frames the server sends
+ * (see GameServer for the frame format), and sends the key presses of the player
+ * It never runs the game itself. MainGame uses it for --connect, and draws the MainGamePanel from its Board
+ * Frames are read without blocking by poll, on the thread that draws, so the Board is only used by a single thread
+ * Run with 'java GameClient [-host h] [-port p] [-clients n] [-seconds s]' to connect many watching clients
+ * on a single thread and measure what the server sends
+ */
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+public class GameClient implements Closeable {
+    private static final GamePieces[] PIECES = GamePieces.values();
+
+    private final SocketChannel channel;
+    private ByteBuffer input = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer output = ByteBuffer.allocate(1);
+    private final ChangedCells changedCells = new ChangedCells(64);
+    private Board board;
+    private long frame;
+    private boolean collision;
+    private int score;
+    private int speedIncr;
+    private int head = -1;
+    private long frames = 0;
+    private long bytes = 0;
+
+    private GameClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Connects to a GameServer and waits for its first keyframe, so the Board is there once this returns
+     * @param host name or address of the server
+     * @param port TCP port of the server
+     * @return a connected GameClient
+     */
+    public static GameClient connect(String host, int port) throws IOException {
+        GameClient client = new GameClient(SocketChannel.open(new InetSocketAddress(host, port)));
+        try {
+            client.channel.socket().setTcpNoDelay(true);
+            while (client.board == null) {
+                if (client.channel.read(client.input) < 0) {
+                    throw new EOFException("Server closed the connection before the first frame");
+                }
+                client.applyFrames();
+            }
+            client.channel.configureBlocking(false);
+        } catch (IOException ex) {
+            client.close();
+            throw ex;
+        }
+        return client;
+    }
+
+    /**
+     * Reads every frame that has arrived, without blocking, and applies it to the Board
+     * getChangedCells then holds every cell those frames changed (everything if one of them was a keyframe)
+     * @return true if at least one frame was applied
+     */
+    public boolean poll() throws IOException {
+        changedCells.clear();
+        long before = frames;
+        int read;
+        do {
+            read = channel.read(input);
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            applyFrames();
+        } while (read > 0);
+        return frames != before;
+    }
+
+    /**
+     * Sends a key press to the server, it is dropped if the socket can not take it right now
+     * @param direction Direction of the arrow key pressed
+     */
+    public void send(Direction direction) throws IOException {
+        output.clear();
+        output.put((byte) direction.ordinal());
+        output.flip();
+        channel.write(output);
+    }
+
+    /**
+     * Applies every complete frame in input, and keeps the start of an incomplete one for the next read
+     */
+    private void applyFrames() throws IOException {
+        input.flip();
+        while (input.remaining() >= Integer.BYTES) {
+            int length = input.getInt(input.position());
+            if (length <= 0) {
+                throw new IOException("Damaged frame from the server");
+            }
+            if (input.remaining() < Integer.BYTES + length) {
+                if (Integer.BYTES + length > input.capacity()) {
+                    ByteBuffer grown = ByteBuffer.allocate(Integer.BYTES + length);
+                    grown.put(input);
+                    input = grown;
+                    return;
+                }
+                break;
+            }
+            int end = input.position() + Integer.BYTES + length;
+            input.position(input.position() + Integer.BYTES);
+            applyFrame(input);
+            input.position(end);
+            frames++;
+            bytes += Integer.BYTES + length;
+        }
+        input.compact();
+    }
+
+    private void applyFrame(ByteBuffer frameInput) {
+        byte type = frameInput.get();
+        collision = (frameInput.get() & GameServer.COLLISION) != 0;
+        frame = GameServer.getVarint(frameInput);
+        score = GameServer.unzigzag(GameServer.getVarint(frameInput));
+        speedIncr = GameServer.unzigzag(GameServer.getVarint(frameInput));
+        head = (int) GameServer.getVarint(frameInput) - 1;
+
+        if (type == GameServer.KEYFRAME) {
+            applyKeyframe(frameInput);
+            changedCells.addAll();
+        } else {
+            int count = (int) GameServer.getVarint(frameInput);
+            for (int i = 0; i < count; i++) {
+                int cell = (int) GameServer.getVarint(frameInput);
+                board.set(cell, PIECES[frameInput.get()]);
+                changedCells.add(cell);
+            }
+        }
+    }
+
+    /**
+     * Fills the Board from the runs of a keyframe, a run that covers whole rows is placed with a single Board.fill
+     */
+    private void applyKeyframe(ByteBuffer frameInput) {
+        int cols = (int) GameServer.getVarint(frameInput);
+        int rows = (int) GameServer.getVarint(frameInput);
+        if (board == null || board.getCols() != cols || board.getRows() != rows) {
+            board = new Board(rows, cols);
+        }
+        int cell = 0;
+        while (cell < rows * cols) {
+            GamePieces piece = PIECES[frameInput.get()];
+            int end = cell + (int) GameServer.getVarint(frameInput);
+            while (cell < end) {
+                int row = cell / cols;
+                int col = cell % cols;
+                if (col == 0 && end - cell >= cols) {
+                    int lastRow = row + (end - cell) / cols - 1;
+                    board.fill(row, lastRow, 0, cols - 1, piece);
+                    cell = (lastRow + 1) * cols;
+                } else {
+                    int lastCol = Math.min(cols, col + end - cell) - 1;
+                    board.fill(row, row, col, lastCol, piece);
+                    cell += lastCol - col + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return copy of the board of the server, as of the last frame
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return cells the frames of the last poll changed
+     */
+    public ChangedCells getChangedCells() {
+        return changedCells;
+    }
+
+    /**
+     * @return cell of the snake head, -1 if there is none
+     */
+    public int getHead() {
+        return head;
+    }
+
+    /**
+     * @return score as of the last frame
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return speedIncr as of the last frame
+     */
+    public int getSpeedIncr() {
+        return speedIncr;
+    }
+
+    /**
+     * @return true if the snake collided on the tick of the last frame, the server then starts a new game
+     */
+    public boolean isCollision() {
+        return collision;
+    }
+
+    /**
+     * @return number of the last frame applied
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return number of frames applied
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return number of bytes of frames applied, length prefixes included
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = GameServer.DEFAULT_PORT;
+        int count = 100;
+        double seconds = 10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-host" -> host = args[++i];
+                case "-port" -> port = Integer.parseInt(args[++i]);
+                case "-clients" -> count = Integer.parseInt(args[++i]);
+                case "-seconds" -> seconds = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        GameClient[] clients = new GameClient[count];
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < count; i++) {
+                clients[i] = connect(host, port);
+                clients[i].channel.register(selector, SelectionKey.OP_READ, clients[i]);
+            }
+            long end = System.nanoTime() + (long) (seconds * 1e9);
+            while (System.nanoTime() < end && selector.keys().size() != 0) {
+                selector.select(Math.max(1, (end - System.nanoTime()) / 1_000_000));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    GameClient client = (GameClient) key.attachment();
+                    try {
+                        client.poll();
+                    } catch (IOException ex) {
+                        key.cancel();
+                        client.close();
+                    }
+                }
+            }
+        } finally {
+            for (GameClient client : clients) {
+                if (client != null) {
+                    client.close();
+                }
+            }
+        }
+
+        long frames = 0;
+        long bytes = 0;
+        long minFrame = Long.MAX_VALUE;
+        long maxFrame = 0;
+        for (GameClient client : clients) {
+            frames += client.getFrames();
+            bytes += client.getBytes();
+            minFrame = Math.min(minFrame, client.getFrame());
+            maxFrame = Math.max(maxFrame, client.getFrame());
+        }
+        System.out.printf("%d clients, %d frames, %.1f bytes/frame, last frame %d to %d%n", count, frames,
+                (double) bytes / Math.max(1, frames), minFrame, maxFrame);
+    }
+}
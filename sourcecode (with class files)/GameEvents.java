@@ -0,0 +1,153 @@
+/**
+ * GameEvents.java
+ * Java Flight Recorder events of the game, so a stutter can be lined up with GC pauses, safepoints, and
+ * everything else in the same recording. Every event carries the board size and the snake length
+ * Events are made where they happen (GameManager, LevelCache, MainGame, TerminalGame) as
+ * 'new, begin, work, shouldCommit, commit'. When Flight Recorder is off, shouldCommit is false and the JIT removes
+ * the event object, so they cost nothing
+ * The settings of every event are in snake.jfc, shipped next to the classes, start a recording with them with
+ * --jfr file, or 'java -XX:StartFlightRecording:settings=default,settings=snake.jfc,filename=file.jfr'
+ */
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class GameEvents {
+    static final String SETTINGS = "snake.jfc";
+
+    private GameEvents() {
+    }
+
+    /**
+     * Fields every game event has
+     */
+    @Category("Snake")
+    @StackTrace(false)
+    abstract static class GameEvent extends Event {
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int cols;
+
+        @Label("Snake Length")
+        int snakeLength;
+
+        /**
+         * Fills in the board size and snake length of game
+         */
+        void set(GameManager game) {
+            rows = game.getMaxRow();
+            cols = game.getMaxCol();
+            snakeLength = game.getSnakeLength();
+        }
+    }
+
+    @Name("snake.Tick")
+    @Label("Tick")
+    @Description("A single GameManager.move")
+    static final class Tick extends GameEvent {
+        @Label("Tick")
+        long tick;
+    }
+
+    @Name("snake.SpawnApple")
+    @Label("Spawn Apple")
+    @Description("Placing a new apple on a random EMPTY cell, picked from FreeCells in a single draw")
+    static final class SpawnApple extends GameEvent {
+        @Label("Free Cells")
+        @Description("EMPTY cells the apple was picked from")
+        int freeCells;
+
+        @Label("Spawned")
+        @Description("False if the board had no EMPTY cell left")
+        boolean spawned;
+    }
+
+    @Name("snake.GameOver")
+    @Label("Game Over")
+    @Description("The snake collided")
+    static final class GameOver extends GameEvent {
+        @Label("Score")
+        int score;
+
+        @Label("Tick")
+        long tick;
+
+        @Label("Hit")
+        @Description("gamePiece the head ran into")
+        String hit;
+    }
+
+    @Name("snake.NewGame")
+    @Label("New Game")
+    @Description("Resetting the board, snake, and score for a new game")
+    static final class NewGame extends GameEvent {
+        @Label("Seed")
+        long seed;
+    }
+
+    @Name("snake.LevelLoad")
+    @Label("Level Load")
+    @Description("Getting a level file through LevelCache, reading it if it is not cached")
+    static final class LevelLoad extends GameEvent {
+        @Label("File")
+        String file;
+
+        @Label("Cached")
+        boolean cached;
+
+        @Label("Walls")
+        int walls;
+    }
+
+    @Name("snake.Paint")
+    @Label("Paint")
+    @Description("Drawing a frame, in the window or the terminal")
+    static final class Paint extends GameEvent {
+        @Label("Cells")
+        @Description("Cells inside the area that was drawn")
+        long cells;
+    }
+
+    /**
+     * Starts a Flight Recorder recording with the default settings of the JDK and the settings in snake.jfc,
+     * written to destination when the program exits
+     * @param destination file to write the recording to
+     * @return the running Recording
+     */
+    public static Recording startRecording(Path destination) throws IOException {
+        Map<String, String> settings = new HashMap<>();
+        try (InputStream input = GameEvents.class.getResourceAsStream(SETTINGS)) {
+            if (input == null) {
+                throw new IOException(SETTINGS + " is missing from the class path");
+            }
+            Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            settings.putAll(Configuration.getConfiguration("default").getSettings());
+            settings.putAll(Configuration.create(reader).getSettings());
+        } catch (ParseException ex) {
+            throw new IOException("Could not read " + SETTINGS, ex);
+        }
+        Recording recording = new Recording(settings);
+        recording.setName("Snake");
+        recording.setDestination(destination);
+        recording.setDumpOnExit(true);
+        recording.start();
+        return recording;
+    }
+}
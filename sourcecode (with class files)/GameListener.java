@@ -0,0 +1,48 @@
+/**
+ * GameListener.java
+ * Is told what changed in a GameManager, so the UI and GameMetrics only do something when there is a change,
+ * instead of reading every getter after every tick (see GameManager.addListener)
+ * The events of a tick are delivered together once the tick is over, so the getters of the game already give the
+ * new state, in the order appleEaten, grew, speedChanged, collision. A tick that only moved the snake delivers nothing
+ * Called on the thread that ticks the game, every method does nothing by default
+ */
+public interface GameListener {
+    /**
+     * The snake ate an apple, the score went up
+     * @param game GameManager the apple was eaten in
+     * @param apple gamePiece that was eaten (APPLE, GOLDAPPLE, SPEEDAPPLE, or PUMPKINAPPLE)
+     */
+    default void appleEaten(GameManager game, GamePieces apple) {
+    }
+
+    /**
+     * The snake is going to grow, maxLen went up
+     * @param game GameManager the snake is in
+     * @param amount number of pieces maxLen went up by
+     */
+    default void grew(GameManager game, int amount) {
+    }
+
+    /**
+     * speedIncr changed
+     * @param game GameManager whose speed changed
+     * @param speedIncr the new speedIncr
+     */
+    default void speedChanged(GameManager game, int speedIncr) {
+    }
+
+    /**
+     * The snake collided, the game is over until newGame
+     * @param game GameManager the snake collided in
+     * @param hit gamePiece the head ran into (WALL or SNAKE)
+     */
+    default void collision(GameManager game, GamePieces hit) {
+    }
+
+    /**
+     * A new game started, the score, speed, and board are back to their start
+     * @param game GameManager that started a new game
+     */
+    default void gameReset(GameManager game) {
+    }
+}
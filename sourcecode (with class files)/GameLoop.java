@@ -0,0 +1,123 @@
+/**
+ * GameLoop.java
+ * Runs the game on its own simulation thread at a fixed timestep of (delay - speedIncr) milliseconds
+ * Each tick is scheduled from the time the previous tick was due, not from when it ran,
+ * so a slow UI (painting, labels, focus) never delays or jitters the simulation.
+ * After each tick an immutable GameSnapshot is published for the renderer to draw from
+ */
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameLoop implements Runnable {
+    private static final int MAX_LATE_TICKS = 5;
+
+    private final GameManager game;
+    private final int delay;
+    private final Policy input;
+    private final Runnable onCollision;
+
+    private volatile boolean running = false;
+    private volatile GameSnapshot snapshot;
+    private Thread thread;
+
+    /**
+     * Creates a new GameLoop, it does not run until start is called
+     * @param game GameManager to run, only the simulation thread may change it while the loop runs
+     * @param delay base delay between ticks in milliseconds, speedIncr is taken off it
+     * @param input Policy that gives the direction of every tick, called on the simulation thread
+     * @param onCollision called on the simulation thread after the tick the snake collides on, the loop then stops
+     */
+    GameLoop(GameManager game, int delay, Policy input, Runnable onCollision) {
+        this.game = game;
+        this.delay = delay;
+        this.input = input;
+        this.onCollision = onCollision;
+        publishSnapshot();
+    }
+
+    /**
+     * Starts the simulation thread, does nothing if it is already running or the game is over
+     */
+    public synchronized void start() {
+        if (running || game.isCollision()) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this, "snake-simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to finish its current tick
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Takes a new snapshot of the game, used after the game is changed while the loop is stopped (newGame)
+     */
+    public void publishSnapshot() {
+        snapshot = GameSnapshot.of(game, game.getTick(), System.nanoTime(), tickNanos());
+    }
+
+    /**
+     * @return the snapshot taken after the latest tick
+     */
+    public GameSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Runs ticks until stop is called or the snake collides
+     * If the thread falls more than MAX_LATE_TICKS behind (for example after being suspended),
+     * it skips ahead instead of running every missed tick at once
+     */
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime() + tickNanos();
+        while (running) {
+            long wait = nextTick - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(this, wait);
+                continue;
+            }
+
+            GameMetrics metrics = game.getMetrics();
+            if (metrics != null) {
+                metrics.recordDrift(-wait);
+            }
+            game.move(input.nextMove(game));
+            snapshot = GameSnapshot.of(game, game.getTick(), nextTick, tickNanos());
+
+            if (game.isCollision()) {
+                running = false;
+                onCollision.run();
+                return;
+            }
+
+            nextTick += tickNanos();
+            long now = System.nanoTime();
+            if (now - nextTick > MAX_LATE_TICKS * tickNanos()) {
+                nextTick = now;
+            }
+        }
+    }
+
+    /**
+     * @return nanoseconds between ticks at the current speed
+     */
+    private long tickNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, delay - game.getSpeedIncr()));
+    }
+}
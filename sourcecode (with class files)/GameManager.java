@@ -1,23 +1,38 @@
 /**
  *  Initializes Snake game, contains all game logic
- *  Needs a Level file (text file) containing board & wall specifications to work
+ *  Plays on a Level, read from a level file (text or compiled) through LevelCache, or built in
  */
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
 
 public class GameManager {
 
-    private int maxRow; //height, board[maxRow][maxCol], y-axis
-    private int maxCol; //width, board[maxRow][maxCol], x-axis
-    private final GamePieces[][] board;
-    private final ArrayList<Wall> walls = new ArrayList<>();
-    private final Random random;
+    private final int maxRow; //height, y-axis
+    private final int maxCol; //width, x-axis
+    private final Level level;
+    private final Board board;
+    private final FreeCells freeCells;
+    private final ChangedCells changedCells = new ChangedCells(16);
+    private final String[] levelArgs;
+    private final int mapChoice;
+    private long seed;
+    private SplittableRandom random;
+    private ReplayRecorder recorder;
+    private GameMetrics metrics;
+    private GameListener[] listeners = new GameListener[0];
+    private BoardPublisher publisher;
+    private GamePieces eatenApple;
+    private int grown;
+    private boolean speedChanged;
+    private GamePieces hit;
+    private long tick = 0;
 
-    private final Deque<Snake> snake = new LinkedList<>();
     private int maxLen = 5;
+    private Direction heading = Direction.LEFT;
+    private final SnakeBody snake = new SnakeBody(maxLen);
+    private int appleRow;
+    private int appleCol;
     private int score = 0;
     private int speedIncr = 0;
 
@@ -25,235 +40,182 @@ public class GameManager {
 
 
     /**
-     * Creates a new GameManager,
+     * Creates a new GameManager with a random seed,
      * takes in command line argument args, if level file is specified it is initialized,
      * else default level is initialized
      * @param args command line args
      */
     GameManager(String[] args, int mapChoice) throws IOException {
-        this.random = new Random();
-        File level;
-
-        if (args.length != 0) {
-            level = new File(args[0]);
-            readLevelFile(level);
-        } else {
-            getChosenLevel(mapChoice);
-        }
-
-        this.board = new GamePieces[maxRow][maxCol];
-        initBoard();
+        this(args, mapChoice, new SplittableRandom().nextLong());
     }
 
-
     /**
-     * reads level file,
-     * sets maxRow, maxCol, and initializes wall information
-     * @param level text file that contains level configs
+     * Creates a new GameManager,
+     * takes in command line argument args, if level file is specified it is initialized,
+     * else default level is initialized
+     * The same seed, level, and moves always play out the same game
+     * @param args command line args
+     * @param mapChoice integer that decides what built-in level to use if there is no level file
+     * @param seed seed of the random number generator that places apples and the snake
      */
-    private void readLevelFile(File level) throws IOException {
-        try (BufferedReader input = new BufferedReader(new FileReader(level))) {
-            ArrayList<String> levelLines = new ArrayList<>();
-            String line;
-            while ((line = input.readLine()) != null) {
-                if (!line.isEmpty()) {
-                    levelLines.add(line);
-                }
+    GameManager(String[] args, int mapChoice, long seed) throws IOException {
+        this.levelArgs = args.clone();
+        this.mapChoice = mapChoice;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
 
-            }
-            String[] size = levelLines.get(0).split(" ");
-            maxCol = Integer.parseInt(size[0]);
-            maxRow = Integer.parseInt(size[1]);
-            levelLines.remove(0);
-
-            addWallsList(levelLines);
-        }
-    }
-
-    /**
-     * Uses a switch to choose what map level is to be utilized for snake game
-     * @param mapChoice int, value of int determines what is chosen
-     */
-    private void getChosenLevel(int mapChoice) {
-        switch (mapChoice) {
-            case 1 -> zigzagLevel();
-            case 2 -> crossLevel();
-            default -> defaultLevel();
+        if (args.length != 0) {
+            this.level = LevelCache.get(new File(args[0]));
+        } else {
+            this.level = Level.builtIn(mapChoice);
         }
-    }
-
-    /**
-     * set maxRow, maxCol, and initializes wall information based on default settings
-     * this map is a basic box
-     */
-    private void defaultLevel() {
-        ArrayList<String> levelLines = new ArrayList<>();
-        levelLines.add("40 40");
-        levelLines.add("0 39 0 0");
-        levelLines.add("0 39 39 39");
-        levelLines.add("0 0 0 39");
-        levelLines.add("39 39 0 39");
-        String[] size = levelLines.get(0).split(" ");
-        maxCol = Integer.parseInt(size[0]);
-        maxRow = Integer.parseInt(size[1]);
-        levelLines.remove(0);
+        this.maxRow = level.getRows();
+        this.maxCol = level.getCols();
 
-        addWallsList(levelLines);
+        this.board = new Board(maxRow, maxCol);
+        this.freeCells = new FreeCells(board);
+        initBoard();
     }
 
-    /**
-     * set maxRow, maxCol, and initializes wall information based on default settings
-     * this map is a rectangular box with zigzag wall obstacles
-     */
-    private void zigzagLevel() {
-        ArrayList<String> levelLines = new ArrayList<>();
-        levelLines.add("71 45");
-        levelLines.add("0 70 0 0");
-        levelLines.add("0 70 44 44");
-        levelLines.add("0 0 0 44");
-        levelLines.add("70 70 0 44");
-        levelLines.add("10 10 1 35");
-        levelLines.add("20 20 9 43");
-        levelLines.add("30 30 1 35");
-        levelLines.add("40 40 9 43");
-        levelLines.add("50 50 1 35");
-        levelLines.add("60 60 9 43");
-        String[] size = levelLines.get(0).split(" ");
-        maxCol = Integer.parseInt(size[0]);
-        maxRow = Integer.parseInt(size[1]);
-        levelLines.remove(0);
-
-        addWallsList(levelLines);
-    }
-
-    /**
-     * set maxRow, maxCol, and initializes wall information based on default settings
-     * this map is a square box with a large cross-shaped obstacle in the middle
-     */
-    private void crossLevel() {
-        ArrayList<String> levelLines = new ArrayList<>();
-        levelLines.add("60 60");
-        levelLines.add("0 59 0 0");
-        levelLines.add("0 59 59 59");
-        levelLines.add("0 0 0 59");
-        levelLines.add("59 59 0 59");
-        levelLines.add("27 30 9 48");
-        levelLines.add("9 24 27 30");
-        levelLines.add("33 48 27 30");
-
-        String[] size = levelLines.get(0).split(" ");
-        maxCol = Integer.parseInt(size[0]);
-        maxRow = Integer.parseInt(size[1]);
-        levelLines.remove(0);
-
-        addWallsList(levelLines);
-    }
-
-    /**
-     * adds lines of strings from level file into ArrayList
-     * @param levelLines ArrayList containing all Wall objects
-     */
-    private void addWallsList(ArrayList<String> levelLines) {
-        for (String lines : levelLines) {
-            Wall tempWall = new Wall(lines);
-            walls.add(tempWall);
-        }
-    }
 
     /**
      * Initializes board,
-     * sets all pieces to empty,
-     * then adds walls,
-     * and finally spawns Apple and Snake at a random location
+     * copies the board with only the walls on it (the Template of the level), and its freeCells,
+     * then spawns Apple and Snake at a random location
+     * Every cell is marked as changed
+     * freeCells is always the same after the copy, so the same seed always places the same pieces, whatever came before
+     * The score and speedIncr that pick the APPLE are reset before this is called, for the same reason
      */
     private void initBoard() {
-        for (int row = 0; row < maxRow; row++) {
-            for (int col = 0; col < maxCol; col++) {
-                board[row][col] = GamePieces.EMPTY;
-            }
-        }
-        placeWalls(walls);
+        Level.Template template = level.getTemplate();
+        board.resetTo(template.board());
+        freeCells.copyFrom(template.freeCells());
         spawnApple();
         spawnSnake();
+        changedCells.clear();
+        changedCells.addAll();
     }
 
     /**
-     * Adds all walls in allWalls to the board
-     * @param allWalls ArrayList containing walls to-be-added
+     * Sets a place on the board to a gamePiece, and keeps freeCells and changedCells up to date
+     * Every change to the board goes through this method
+     * @param row row int to-be-set
+     * @param col col int to-be-set
+     * @param piece gamePiece to be placed
      */
-    private void placeWalls(ArrayList<Wall> allWalls) {
-        for (Wall wall : allWalls) {
-            placeWall(wall);
+    private void setPiece(int row, int col, GamePieces piece) {
+        GamePieces oldPiece = board.get(row, col);
+        board.set(row, col, piece);
+        changedCells.add(row * maxCol + col);
+        if (piece == GamePieces.EMPTY && oldPiece != GamePieces.EMPTY) {
+            freeCells.add(row, col);
+        } else if (piece != GamePieces.EMPTY && oldPiece == GamePieces.EMPTY) {
+            freeCells.remove(row, col);
         }
     }
 
     /**
-     * Adds a wall to board using information from a Wall object
-     * @param wall Wall object that has leftBound, rightBound, upperBound, and lowerBound information
+     * replaces a random EMPTY gamePiece on the board with an APPLE,
+     * APPLE may either be a normal APPLE, a GOLDAPPLE (+5 more points), or a SPEEDAPPLE (increments snake speed)
+     * The EMPTY gamePiece is picked from freeCells, so the board itself is never searched for it.
+     * If there is no EMPTY gamePiece left, no APPLE is spawned and appleRow/appleCol are set to -1
+     * With metrics, the time it takes is recorded, and a GameEvents.SpawnApple is made for Flight Recorder
      */
-    private void placeWall(Wall wall) {
-        int startRow = wall.getWallUpBound();
-        int startCol = wall.getWallLeftBound();
-        int endRow = wall.getWallLowBound() + 1;
-        int endCol = wall.getWallRightBound() + 1;
+    private void spawnApple() {
+        GameEvents.SpawnApple event = new GameEvents.SpawnApple();
+        event.begin();
+        int free = freeCells.size();
+        if (metrics == null) {
+            placeApple();
+        } else {
+            long start = System.nanoTime();
+            placeApple();
+            metrics.recordSpawn(System.nanoTime() - start, appleRow >= 0);
+        }
+        if (event.shouldCommit()) {
+            event.set(this);
+            event.freeCells = free;
+            event.spawned = appleRow >= 0;
+            event.commit();
+        }
+    }
 
-        for (int wallRow = startRow; wallRow < endRow; wallRow++) {
-            for (int wallCol = startCol; wallCol < endCol; wallCol++) {
-                board[wallRow][wallCol] = GamePieces.WALL;
-            }
+    private void placeApple() {
+        if (freeCells.size() == 0) {
+            this.appleRow = -1;
+            this.appleCol = -1;
+            return;
+        }
+        int cell = freeCells.get(random.nextInt(freeCells.size()));
+        int specialAppleNum = random.nextInt(200);
+        this.appleRow = cell / maxCol;
+        this.appleCol = cell % maxCol;
+
+        if (specialAppleNum < 10 && score >= 20) {
+            setPiece(appleRow, appleCol, GamePieces.PUMPKINAPPLE);
+        } else if(specialAppleNum > 10 && specialAppleNum < 20 && score >= 20 && speedIncr <= 70) {
+            setPiece(appleRow, appleCol, GamePieces.SPEEDAPPLE);
+        } else if(specialAppleNum > 20 && specialAppleNum < 40 && score >= 10) {
+            setPiece(appleRow, appleCol, GamePieces.GOLDAPPLE);
+        } else {
+            setPiece(appleRow, appleCol, GamePieces.APPLE);
         }
     }
 
     /**
-     * replaces a random EMPTY gamePiece on the board with an APPLE,
-     * APPLE may either be a normal APPLE, a GOLDAPPLE (+5 more points), or a SPEEDAPPLE (increments snake speed)
+     * removes the current APPLE from the board and spawns a new one somewhere else,
+     * used by SnakeBenchmark to measure spawnApple on a board that does not change
      */
-    private void spawnApple() {
-        int appleRow = random.nextInt(maxRow);
-        int appleCol = random.nextInt(maxCol);
-        int specialAppleNum = random.nextInt(200);
-
-        if (board[appleRow][appleCol] != GamePieces.EMPTY) {
-            spawnApple();
-        } else {
-            if (specialAppleNum < 10 && score >= 20) {
-                board[appleRow][appleCol] = GamePieces.PUMPKINAPPLE;
-            } else if(specialAppleNum > 10 && specialAppleNum < 20 && score >= 20 && speedIncr <= 70) {
-                board[appleRow][appleCol] = GamePieces.SPEEDAPPLE;
-            } else if(specialAppleNum > 20 && specialAppleNum < 40 && score >= 10) {
-                board[appleRow][appleCol] = GamePieces.GOLDAPPLE;
-            } else {
-                board[appleRow][appleCol] = GamePieces.APPLE;
-            }
+    void respawnApple() {
+        if (appleRow >= 0) {
+            setPiece(appleRow, appleCol, GamePieces.EMPTY);
+        }
+        spawnApple();
+        if (publisher != null) {
+            publisher.publish();
         }
     }
 
     /**
-     * replaces a random EMPTY gamePiece on the board with a SNAKE
+     * replaces a random EMPTY gamePiece on the board with a SNAKE, picked from freeCells
      */
     private void spawnSnake() {
-        int snakeCol = random.nextInt(maxCol);
-        int snakeRow = random.nextInt(maxRow);
-
-        if (board[snakeRow][snakeCol] != GamePieces.EMPTY) {
-            spawnSnake();
-        } else {
-            snake.add(new Snake(snakeRow, snakeCol));
-            board[snakeRow][snakeCol] = GamePieces.SNAKE;
+        if (freeCells.size() == 0) {
+            throw new IllegalStateException("No EMPTY place on the board to spawn the snake");
         }
+        int cell = freeCells.get(random.nextInt(freeCells.size()));
+        int snakeRow = cell / maxCol;
+        int snakeCol = cell % maxCol;
+
+        snake.pushHead(cell);
+        setPiece(snakeRow, snakeCol, GamePieces.SNAKE);
     }
 
     /**
      * Checks if a place on the board is valid for the SNAKE to move onto
+     * WALLs are checked against the WallIndex of the level, the board is only read for the other pieces
+     * A place outside the board counts as a WALL, so a level does not need walls around its border
+     * A collision makes a GameEvents.GameOver for Flight Recorder
      * @param row row int to-be-checked
      * @param col col int to-be-checked
      * @return True if board[row][col] is not valid, else false
      */
     private boolean collision(int row, int col) {
-        switch (board[row][col]) {
+        GamePieces piece = row < 0 || col < 0 || row >= maxRow || col >= maxCol || level.isWall(row, col)
+                ? GamePieces.WALL : board.get(row, col);
+        switch (piece) {
             case APPLE, EMPTY, GOLDAPPLE, SPEEDAPPLE, PUMPKINAPPLE -> {return false;}
             default -> {
                 collision = true;
+                hit = piece;
+                GameEvents.GameOver event = new GameEvents.GameOver();
+                if (event.shouldCommit()) {
+                    event.set(this);
+                    event.score = score;
+                    event.tick = tick;
+                    event.hit = piece.name();
+                    event.commit();
+                }
                 return true;
             }
         }
@@ -269,27 +231,43 @@ public class GameManager {
      * @param col col int to-be-checked
      */
     private void appleCheck(int row, int col) {
-        if (board[row][col] == GamePieces.APPLE) {
+        GamePieces piece = board.get(row, col);
+        if (piece != GamePieces.EMPTY) {
+            eatenApple = piece;
+        }
+        if (piece == GamePieces.APPLE) {
             spawnApple();
             score++;
-            maxLen++;
-        } else if (board[row][col] == GamePieces.GOLDAPPLE) {
+            grow(1);
+        } else if (piece == GamePieces.GOLDAPPLE) {
             spawnApple();
             score += 5;
-            maxLen += 5;
-        } else if (board[row][col] == GamePieces.SPEEDAPPLE) {
+            grow(5);
+        } else if (piece == GamePieces.SPEEDAPPLE) {
             spawnApple();
             score++;
-            maxLen++;
+            grow(1);
             speedIncr += 10;
-        } else if (board[row][col] == GamePieces.PUMPKINAPPLE) {
+            speedChanged = true;
+        } else if (piece == GamePieces.PUMPKINAPPLE) {
             spawnApple();
             score += 10;
-            maxLen += 10;
+            grow(10);
             speedIncr -= 10;
+            speedChanged = true;
         }
     }
 
+    /**
+     * Increases maxLen, and makes room in the snake body so it does not have to grow while moving
+     * @param amount int value maxLen goes up by
+     */
+    private void grow(int amount) {
+        grown += amount;
+        maxLen += amount;
+        snake.ensureCapacity(maxLen);
+    }
+
     /**
      * Moves the snake by a given int value, while also checking collision and apple position
      * However, value must be valid.
@@ -297,29 +275,200 @@ public class GameManager {
      * @param changeRow row int that represents how much the snake head moves
      * @param changeCol col int that represents how much the snake head moves
      */
-    public void move(int changeRow, int changeCol) {
-        Snake head = snake.getFirst();
-        if (!collision(head.snakeRow() + changeRow, head.snakeCol() + changeCol)) {
-            if (snake.size() < maxLen) {
-                Snake nextPart = new Snake(head.snakeRow() + changeRow, head.snakeCol() + changeCol);
+    private void move(int changeRow, int changeCol) {
+        changedCells.clear();
+        int nextRow = snake.head() / maxCol + changeRow;
+        int nextCol = snake.head() % maxCol + changeCol;
+        if (!collision(nextRow, nextCol)) {
+            boolean growing = snake.size() < maxLen;
 
-                appleCheck(head.snakeRow() + changeRow, head.snakeCol() + changeCol);
+            appleCheck(nextRow, nextCol);
 
-                snake.push(nextPart);
+            snake.pushHead(nextRow * maxCol + nextCol);
+            setPiece(nextRow, nextCol, GamePieces.SNAKE);
 
-                board[nextPart.snakeRow()][nextPart.snakeCol()] = GamePieces.SNAKE;
+            if (!growing) {
+                int tail = snake.popTail();
+                setPiece(tail / maxCol, tail % maxCol, GamePieces.EMPTY);
             }
-            else {
-                Snake nextPart = new Snake(head.snakeRow() + changeRow, head.snakeCol() + changeCol);
+        }
+    }
 
-                appleCheck(head.snakeRow() + changeRow, head.snakeCol() + changeCol);
+    /**
+     * Moves the snake one piece in the given direction, while also checking collision and apple position
+     * With metrics, the time it takes is recorded, and a GameEvents.Tick is made for Flight Recorder
+     * Once the move is done, it is published to the BoardPublisher (if there is one), and the listeners are told
+     * what it changed
+     * @param direction Direction the snake head moves in
+     */
+    public void move(Direction direction) {
+        GameEvents.Tick event = new GameEvents.Tick();
+        event.begin();
+        if (metrics == null) {
+            playMove(direction);
+        } else {
+            long start = System.nanoTime();
+            playMove(direction);
+            metrics.recordTick(start, System.nanoTime());
+        }
+        if (event.shouldCommit()) {
+            event.set(this);
+            event.tick = tick;
+            event.commit();
+        }
+        if (publisher != null) {
+            publisher.publish();
+        }
+        if (listeners.length != 0) {
+            fireTickEvents();
+        }
+    }
 
-                snake.push(nextPart);
-                board[snake.getFirst().snakeRow()][snake.getFirst().snakeCol()] = GamePieces.SNAKE;
-                board[snake.getLast().snakeRow()][snake.getLast().snakeCol()] = GamePieces.EMPTY;
-                snake.removeLast();
+    /**
+     * Tells every listener what changed during the tick, nothing is told if the snake only moved
+     */
+    private void fireTickEvents() {
+        if (eatenApple == null && grown == 0 && !speedChanged && hit == null) {
+            return;
+        }
+        for (GameListener listener : listeners) {
+            if (eatenApple != null) {
+                listener.appleEaten(this, eatenApple);
+            }
+            if (grown != 0) {
+                listener.grew(this, grown);
+            }
+            if (speedChanged) {
+                listener.speedChanged(this, speedIncr);
             }
+            if (hit != null) {
+                listener.collision(this, hit);
+            }
+        }
+    }
+
+    private void playMove(Direction direction) {
+        eatenApple = null;
+        grown = 0;
+        speedChanged = false;
+        hit = null;
+        tick++;
+        if (recorder != null) {
+            recorder.record(tick, direction);
         }
+        heading = direction;
+        move(direction.getChangeRow(), direction.getChangeCol());
+    }
+
+    /**
+     * gets the number of moves since the game started
+     * @return long value of tick
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * gets the seed the current game was started with
+     * @return long value of seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * gets the level file the game was created with
+     * @return path of the level file, null if a built-in level is used
+     */
+    public String getLevelFile() {
+        return levelArgs.length != 0 ? levelArgs[0] : null;
+    }
+
+    /**
+     * gets the Level the game is played on
+     * @return the Level, shared with every other game of the same level
+     */
+    public Level getLevel() {
+        return level;
+    }
+
+    /**
+     * gets the built-in level the game was created with, only used if there is no level file
+     * @return int value of mapChoice
+     */
+    public int getMapChoice() {
+        return mapChoice;
+    }
+
+    /**
+     * Records every move with recorder, starting with the current game, which must not have moved yet
+     * @param recorder ReplayRecorder to record to, null to stop recording
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        if (recorder != null && tick != 0) {
+            throw new IllegalStateException("Recording has to start before the first move of a game");
+        }
+        this.recorder = recorder;
+        if (recorder != null) {
+            recorder.startGame(seed);
+        }
+    }
+
+    /**
+     * Records the time of every move and apple spawn into metrics, metrics also listens to the game
+     * @param metrics GameMetrics to record to, null to stop recording
+     */
+    public void setMetrics(GameMetrics metrics) {
+        if (this.metrics != null) {
+            removeListener(this.metrics);
+        }
+        this.metrics = metrics;
+        if (metrics != null) {
+            addListener(metrics);
+        }
+    }
+
+    /**
+     * Adds a listener, told about every change from now on
+     * Listeners are kept in an array that is copied when it changes, so a tick never allocates
+     * @param listener GameListener to add
+     */
+    public void addListener(GameListener listener) {
+        GameListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /**
+     * Removes a listener, nothing happens if it was not added
+     * @param listener GameListener to remove
+     */
+    public void removeListener(GameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                GameListener[] newListeners = new GameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * gets the GameMetrics moves are recorded to
+     * @return GameMetrics, null if there is none
+     */
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * gets the Direction of the last move, LEFT at the start of a game
+     * @return Direction the snake is heading in
+     */
+    public Direction getHeading() {
+        return heading;
     }
 
     /**
@@ -339,13 +488,35 @@ public class GameManager {
     }
 
     /**
-     * gets the gameBoard
-     * @return 2D GamePiece array
+     * gets the gameBoard, it changes during every move, so only the thread that ticks the game may read it
+     * (other threads read from getPublisher)
+     * @return Board with the gamePiece of every cell
      */
-    public GamePieces[][] getBoard() {
+    public Board getBoard() {
         return board;
     }
 
+    /**
+     * gets the BoardPublisher that other threads read consistent frames of the board from
+     * It is made on the first call and from then on every move and newGame is published to it,
+     * so the first call has to be made on the thread that ticks the game, or while the game is not ticking
+     * @return BoardPublisher of this game
+     */
+    public BoardPublisher getPublisher() {
+        if (publisher == null) {
+            publisher = new BoardPublisher(this);
+        }
+        return publisher;
+    }
+
+    /**
+     * gets the cells that changed during the last tick (or everything, after a new game)
+     * @return ChangedCells of the last call to move or newGame
+     */
+    public ChangedCells getChangedCells() {
+        return changedCells;
+    }
+
     /**
      * gets current score
      * @return int value of score
@@ -354,22 +525,65 @@ public class GameManager {
         return score;
     }
 
+    /**
+     * gets the row of the snake head
+     * @return int value of the head row
+     */
+    public int getHeadRow() {
+        return snake.head() / maxCol;
+    }
+
+    /**
+     * gets the row of the current APPLE
+     * @return int value of the apple row, -1 if there is no APPLE because the board is full
+     */
+    public int getAppleRow() {
+        return appleRow;
+    }
+
+    /**
+     * gets the col of the current APPLE
+     * @return int value of the apple col, -1 if there is no APPLE because the board is full
+     */
+    public int getAppleCol() {
+        return appleCol;
+    }
+
+    /**
+     * gets the col of the snake head
+     * @return int value of the head col
+     */
+    public int getHeadCol() {
+        return snake.head() % maxCol;
+    }
+
+    /**
+     * gets the body of the snake, from head to tail, it must not be changed by the caller
+     * @return SnakeBody of the snake
+     */
+    public SnakeBody getSnakeBody() {
+        return snake;
+    }
+
+    /**
+     * gets the current length of the snake
+     * @return int value of the snake length
+     */
+    public int getSnakeLength() {
+        return snake.size();
+    }
+
     /**
      * Returns a String representation of the game board
      * @return String representing the board
      */
     @Override
     public String toString() {
-        StringBuilder boardStr = new StringBuilder();
-
-        for (GamePieces[] pieceRow : board) {
-            for (GamePieces piece : pieceRow) {
-                switch (piece) {
-                    case WALL -> boardStr.append("X");
-                    case APPLE -> boardStr.append("f");
-                    case SNAKE -> boardStr.append("S");
-                    default -> boardStr.append(".");
-                }
+        StringBuilder boardStr = new StringBuilder((maxCol + 1) * maxRow);
+
+        for (int row = 0; row < maxRow; row++) {
+            for (int col = 0; col < maxCol; col++) {
+                boardStr.append(board.get(row, col).symbol());
             }
             boardStr.append("\n");
         }
@@ -381,18 +595,61 @@ public class GameManager {
     }
 
     /**
-     * resets to default settings when called
+     * resets to default settings when called, the seed of the new game is drawn from the current one
      * snake is emptied,
      * a new board is initiated,
      * collision, score, maxLen, and speedIncr are reset to default
      */
     public void newGame() {
+        newGame(random.nextLong());
+    }
+
+    /**
+     * resets to default settings when called
+     * snake is emptied,
+     * collision, score, maxLen, speedIncr, and tick are reset to default,
+     * then a new board is initiated with the random number generator seeded with seed
+     * Makes a GameEvents.NewGame for Flight Recorder, publishes the new board, and tells the listeners
+     * @param seed seed of the new game
+     */
+    public void newGame(long seed) {
+        GameEvents.NewGame event = new GameEvents.NewGame();
+        event.begin();
+        if (recorder != null) {
+            recorder.endGame();
+            recorder.startGame(seed);
+        }
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        tick = 0;
         snake.clear();
-        initBoard();
         collision = false;
         score = 0;
         maxLen = 5;
         speedIncr = 0;
+        heading = Direction.LEFT;
+        initBoard();
+        if (event.shouldCommit()) {
+            event.set(this);
+            event.seed = seed;
+            event.commit();
+        }
+        if (publisher != null) {
+            publisher.publish();
+        }
+        for (GameListener listener : listeners) {
+            listener.gameReset(this);
+        }
+    }
+
+    /**
+     * sets the maximum length the snake grows to,
+     * used by SnakeBenchmark to build long snakes without eating apples
+     * @param maxLen int value of the new maxLen
+     */
+    void setMaxLen(int maxLen) {
+        this.maxLen = maxLen;
+        snake.ensureCapacity(maxLen);
     }
 
     /**
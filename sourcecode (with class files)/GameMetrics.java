@@ -0,0 +1,233 @@
+/**
+ * GameMetrics.java
+ * Counters and latency histograms of a running game, published as an MBean (see GameMetricsMBean) for --metrics
+ * GameManager records tick and spawn times, MainGame (or TerminalGame) paint times, and the thread that ticks
+ * records how late every tick ran compared to the (delay - speedIncr) it was asked for
+ * Apples eaten and collisions are counted as a GameListener, GameManager.setMetrics registers it
+ * Recording is lock-free and allocation-free (atomic counters and LatencyHistograms), so it does not disturb
+ * the times it measures, reading them from JMX never stops the game
+ */
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class GameMetrics implements GameMetricsMBean, GameListener {
+    static final String OBJECT_NAME = "Snake:type=GameMetrics";
+    private static final long SECOND = 1_000_000_000L;
+
+    private final LatencyHistogram tickTimes = new LatencyHistogram();
+    private final LatencyHistogram spawnTimes = new LatencyHistogram();
+    private final LatencyHistogram paintTimes = new LatencyHistogram();
+    private final LatencyHistogram timerDrift = new LatencyHistogram();
+    private final AtomicLong spawnsFailed = new AtomicLong();
+    private final AtomicLong applesEaten = new AtomicLong();
+    private final AtomicLong collisions = new AtomicLong();
+
+    private final AtomicLong second = new AtomicLong(System.nanoTime() / SECOND);
+    private volatile long ticksBeforeSecond = 0;
+    private volatile long ticksLastSecond = 0;
+
+    /**
+     * Creates a new GameMetrics and registers it with the platform MBeanServer as OBJECT_NAME,
+     * replacing one that is already registered
+     * @return the registered GameMetrics
+     */
+    public static GameMetrics register() {
+        GameMetrics metrics = new GameMetrics();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException ex) {
+            throw new IllegalStateException("Could not register " + OBJECT_NAME, ex);
+        }
+        return metrics;
+    }
+
+    /**
+     * Records a tick. The ticks of a second are only counted once the first tick of the next second ends,
+     * as the difference of the tick counts, so most ticks only touch the histogram
+     * @param startNanos System.nanoTime when the tick started
+     * @param endNanos System.nanoTime when the tick ended
+     */
+    void recordTick(long startNanos, long endNanos) {
+        long now = endNanos / SECOND;
+        long current = second.get();
+        if (now != current && second.compareAndSet(current, now)) {
+            long ticks = tickTimes.getCount();
+            ticksLastSecond = now == current + 1 ? ticks - ticksBeforeSecond : 0;
+            ticksBeforeSecond = ticks;
+        }
+        tickTimes.record(endNanos - startNanos);
+    }
+
+    /**
+     * Records spawning an apple
+     * @param nanos time the spawn took
+     * @param spawned false if there was no EMPTY cell for the apple
+     */
+    void recordSpawn(long nanos, boolean spawned) {
+        spawnTimes.record(nanos);
+        if (!spawned) {
+            spawnsFailed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records painting a frame
+     * @param nanos time the paint took
+     */
+    void recordPaint(long nanos) {
+        paintTimes.record(nanos);
+    }
+
+    /**
+     * Records how late a tick ran, ticks that ran early count as on time
+     * @param nanos time the tick ran after it was due
+     */
+    void recordDrift(long nanos) {
+        timerDrift.record(nanos);
+    }
+
+    @Override
+    public void appleEaten(GameManager game, GamePieces apple) {
+        applesEaten.incrementAndGet();
+    }
+
+    @Override
+    public void collision(GameManager game, GamePieces hit) {
+        collisions.incrementAndGet();
+    }
+
+    private static double micros(double nanos) {
+        return nanos / 1000;
+    }
+
+    @Override
+    public long getTicks() {
+        return tickTimes.getCount();
+    }
+
+    @Override
+    public long getTicksPerSecond() {
+        long now = System.nanoTime() / SECOND;
+        long current = second.get();
+        if (now == current) {
+            return ticksLastSecond;
+        }
+        return now == current + 1 ? tickTimes.getCount() - ticksBeforeSecond : 0;
+    }
+
+    @Override
+    public double getTickMeanMicros() {
+        return micros(tickTimes.getMean());
+    }
+
+    @Override
+    public double getTickP50Micros() {
+        return micros(tickTimes.getPercentile(50));
+    }
+
+    @Override
+    public double getTickP99Micros() {
+        return micros(tickTimes.getPercentile(99));
+    }
+
+    @Override
+    public double getTickP999Micros() {
+        return micros(tickTimes.getPercentile(99.9));
+    }
+
+    @Override
+    public double getTickMaxMicros() {
+        return micros(tickTimes.getMax());
+    }
+
+    @Override
+    public long getSpawns() {
+        return spawnTimes.getCount() - spawnsFailed.get();
+    }
+
+    @Override
+    public long getSpawnsFailed() {
+        return spawnsFailed.get();
+    }
+
+    @Override
+    public long getApplesEaten() {
+        return applesEaten.get();
+    }
+
+    @Override
+    public long getCollisions() {
+        return collisions.get();
+    }
+
+    @Override
+    public double getSpawnP50Micros() {
+        return micros(spawnTimes.getPercentile(50));
+    }
+
+    @Override
+    public double getSpawnP99Micros() {
+        return micros(spawnTimes.getPercentile(99));
+    }
+
+    @Override
+    public double getSpawnMaxMicros() {
+        return micros(spawnTimes.getMax());
+    }
+
+    @Override
+    public long getPaints() {
+        return paintTimes.getCount();
+    }
+
+    @Override
+    public double getPaintP50Micros() {
+        return micros(paintTimes.getPercentile(50));
+    }
+
+    @Override
+    public double getPaintP99Micros() {
+        return micros(paintTimes.getPercentile(99));
+    }
+
+    @Override
+    public double getPaintMaxMicros() {
+        return micros(paintTimes.getMax());
+    }
+
+    @Override
+    public double getTimerDriftP50Micros() {
+        return micros(timerDrift.getPercentile(50));
+    }
+
+    @Override
+    public double getTimerDriftP99Micros() {
+        return micros(timerDrift.getPercentile(99));
+    }
+
+    @Override
+    public double getTimerDriftMaxMicros() {
+        return micros(timerDrift.getMax());
+    }
+
+    @Override
+    public void reset() {
+        tickTimes.reset();
+        spawnTimes.reset();
+        paintTimes.reset();
+        timerDrift.reset();
+        spawnsFailed.set(0);
+        applesEaten.set(0);
+        collisions.set(0);
+        ticksBeforeSecond = 0;
+        ticksLastSecond = 0;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * GameMetricsMBean.java
+ * Management interface of GameMetrics, what JConsole, VisualVM, or any JMX client sees under Snake:type=GameMetrics
+ * Durations are in microseconds, percentiles are read from LatencyHistograms (about 3% precision)
+ */
+public interface GameMetricsMBean {
+    /** @return number of ticks (GameManager.move) */
+    long getTicks();
+
+    /** @return ticks during the last whole second */
+    long getTicksPerSecond();
+
+    /** @return mean time of a tick */
+    double getTickMeanMicros();
+
+    /** @return median time of a tick */
+    double getTickP50Micros();
+
+    /** @return 99th percentile time of a tick */
+    double getTickP99Micros();
+
+    /** @return 99.9th percentile time of a tick */
+    double getTickP999Micros();
+
+    /** @return longest tick */
+    double getTickMaxMicros();
+
+    /** @return number of apples spawned */
+    long getSpawns();
+
+    /** @return number of times no apple could be spawned because the board had no EMPTY cell left */
+    long getSpawnsFailed();
+
+    /** @return number of apples the snake ate */
+    long getApplesEaten();
+
+    /** @return number of games that ended in a collision */
+    long getCollisions();
+
+    /** @return median time of spawning an apple */
+    double getSpawnP50Micros();
+
+    /** @return 99th percentile time of spawning an apple */
+    double getSpawnP99Micros();
+
+    /** @return longest time of spawning an apple */
+    double getSpawnMaxMicros();
+
+    /** @return number of frames painted */
+    long getPaints();
+
+    /** @return median time of painting a frame */
+    double getPaintP50Micros();
+
+    /** @return 99th percentile time of painting a frame */
+    double getPaintP99Micros();
+
+    /** @return longest time of painting a frame */
+    double getPaintMaxMicros();
+
+    /** @return median of how late a tick ran after the delay it was asked for */
+    double getTimerDriftP50Micros();
+
+    /** @return 99th percentile of how late a tick ran after the delay it was asked for */
+    double getTimerDriftP99Micros();
+
+    /** @return most a tick ran late */
+    double getTimerDriftMaxMicros();
+
+    /** Forgets everything recorded so far */
+    void reset();
+}
@@ -0,0 +1,142 @@
+/**
+ * GameOptions.java
+ * Command line options for Snake
+ * Arguments that start with "--" are options, every other argument is passed on to GameManager (the level file)
+ * --fixed-step : runs the game on its own simulation thread at a fixed timestep (see GameLoop)
+ * --record file : records every game into a replay file, one file per level (see ReplayRecorder and ReplayPlayer)
+ * --autopilot : the snake is played by an Autopilot instead of the arrow keys, and a new game starts after game over
+ * --connect host:port : plays on a GameServer instead, the game runs on the server and MainGame only draws it
+ * --terminal : plays in the text terminal instead of a window (see TerminalGame), for machines without a display
+ * --metrics : records tick, spawn, and paint times and timer drift, published through JMX (see GameMetrics)
+ * --jfr file : records a Flight Recorder recording with the settings in snake.jfc into file (see GameEvents)
+ */
+import java.util.ArrayList;
+
+public class GameOptions {
+    private String[] levelArgs;
+    private boolean fixedStep = false;
+    private String recordFile = null;
+    private boolean autopilot = false;
+    private boolean terminal = false;
+    private boolean metrics = false;
+    private String jfrFile = null;
+    private String connectHost = null;
+    private int connectPort = GameServer.DEFAULT_PORT;
+
+    private GameOptions() {
+    }
+
+    /**
+     * Reads the command line arguments
+     * @param args command line args
+     * @return GameOptions with every option that was given
+     */
+    public static GameOptions parse(String[] args) {
+        GameOptions options = new GameOptions();
+        ArrayList<String> levelArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                levelArgs.add(arg);
+                continue;
+            }
+            switch (arg) {
+                case "--fixed-step" -> options.fixedStep = true;
+                case "--autopilot" -> options.autopilot = true;
+                case "--terminal" -> options.terminal = true;
+                case "--metrics" -> options.metrics = true;
+                case "--record" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("--record needs a file name");
+                    }
+                    options.recordFile = args[++i];
+                }
+                case "--jfr" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("--jfr needs a file name");
+                    }
+                    options.jfrFile = args[++i];
+                }
+                case "--connect" -> {
+                    if (i + 1 == args.length) {
+                        throw new IllegalArgumentException("--connect needs host:port");
+                    }
+                    String address = args[++i];
+                    int colon = address.lastIndexOf(':');
+                    if (colon < 0) {
+                        options.connectHost = address;
+                    } else {
+                        options.connectHost = address.substring(0, colon);
+                        options.connectPort = Integer.parseInt(address.substring(colon + 1));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        options.levelArgs = levelArgs.toArray(new String[0]);
+        return options;
+    }
+
+    /**
+     * @return command line args that are not options, passed on to GameManager
+     */
+    public String[] getLevelArgs() {
+        return levelArgs;
+    }
+
+    /**
+     * @return true if the game runs on its own simulation thread at a fixed timestep
+     */
+    public boolean isFixedStep() {
+        return fixedStep;
+    }
+
+    /**
+     * @return name of the replay file to record to, null if games are not recorded
+     */
+    public String getRecordFile() {
+        return recordFile;
+    }
+
+    /**
+     * @return true if the snake is played by an Autopilot
+     */
+    public boolean isAutopilot() {
+        return autopilot;
+    }
+
+    /**
+     * @return true if the game is played in the text terminal instead of a window
+     */
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    /**
+     * @return true if GameMetrics are recorded and published through JMX
+     */
+    public boolean isMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return name of the file a Flight Recorder recording is written to, null if there is no recording
+     */
+    public String getJfrFile() {
+        return jfrFile;
+    }
+
+    /**
+     * @return host of the GameServer to play on, null if the game runs here
+     */
+    public String getConnectHost() {
+        return connectHost;
+    }
+
+    /**
+     * @return TCP port of the GameServer to play on
+     */
+    public int getConnectPort() {
+        return connectPort;
+    }
+}
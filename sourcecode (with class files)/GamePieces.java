@@ -12,13 +12,27 @@
  * SPEEDAPPLE - if a SNAKE piece collides with SPEEDAPPLE, score and maxLen goes up by 1, speed increases by 10
  * PUMPKINAPPLE - if a SNAKE piece collides with PUMPKINAPPLE, score and maxLen goes up by 10, speed decreases by 10
  * if speedIncr is more than 10
+ * Every gamePiece has the character it is written as in text (GameManager.toString and TerminalRenderer)
  */
 public enum GamePieces {
-    APPLE,
-    EMPTY,
-    SNAKE,
-    WALL,
-    GOLDAPPLE,
-    SPEEDAPPLE,
-    PUMPKINAPPLE,
+    APPLE('f'),
+    EMPTY('.'),
+    SNAKE('S'),
+    WALL('X'),
+    GOLDAPPLE('$'),
+    SPEEDAPPLE('+'),
+    PUMPKINAPPLE('o');
+
+    private final char symbol;
+
+    GamePieces(char symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * @return character the gamePiece is written as in text
+     */
+    public char symbol() {
+        return symbol;
+    }
 }
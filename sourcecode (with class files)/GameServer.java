@@ -0,0 +1,429 @@
+/**
+ * GameServer.java
+ * Hosts a game for remote players (see GameClient), the server is the only one that runs GameManager
+ * A single thread does everything with a non-blocking java.nio Selector: it accepts clients, reads their key presses,
+ * ticks the game every (100 - speed) milliseconds like MainGame, and sends every client a frame after every tick.
+ * A frame only holds the cells the tick changed (the new head, the old tail, a new APPLE), every KEYFRAME_TICKS ticks,
+ * on a new game, and to every new client, a keyframe with the whole board is sent instead.
+ * Every frame is encoded once and shared by every client. A client that has not taken the whole previous frame yet
+ * skips frames until it has, then gets a keyframe, so a slow client never holds up the others or piles up memory
+ * Every client steers the same snake, a client that only watches never sends anything
+ * If the thread falls behind, the missed ticks are caught up, but once it is MAX_CATCH_UP_TICKS ticks behind the lag
+ * is dropped instead, so clients never get a burst of frames after a long pause
+ *
+ * Frame format, every frame starts with an int of its length in bytes (not counting the int itself):
+ *   byte KEYFRAME or DELTA, byte flags (COLLISION), varint frame number,
+ *   zigzag varint score, zigzag varint speedIncr, varint head cell + 1 (0 if there is no snake)
+ *   KEYFRAME: varint cols, varint rows, then the cells row by row as runs: byte gamePiece ordinal, varint run length
+ *   DELTA: varint number of cells, then for every cell: varint cell, byte gamePiece ordinal
+ * Clients send one byte per key press, the ordinal of a Direction
+ * Run with 'java GameServer [-port p] [level-file | map-number]'
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+public class GameServer implements Closeable {
+    static final int DEFAULT_PORT = 7777;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    static final byte COLLISION = 1;
+    static final int KEYFRAME_TICKS = 100;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final int DELAY = 100;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final GameManager game;
+    private final InputQueue inputQueue = new InputQueue(8);
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final List<Client> clients = new ArrayList<>();
+    private ByteBuffer encoder = ByteBuffer.allocate(1024);
+    private long frame = 0;
+    private byte runPiece;
+    private int runLength;
+    private volatile boolean running = true;
+
+    /**
+     * A connected client, and the part of a frame it has not taken yet
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(64);
+        private ByteBuffer output;
+        private boolean needsKeyframe = false;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private boolean isWriting() {
+            return output != null && output.hasRemaining();
+        }
+    }
+
+    /**
+     * Creates a new GameServer listening on port, nothing happens until run is called
+     * @param game GameManager of the game to host, only used by the thread that calls run
+     * @param port TCP port to listen on, 0 for any free port
+     */
+    public GameServer(GameManager game, int port) throws IOException {
+        this.game = game;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return TCP port the server listens on
+     */
+    public int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    /**
+     * @return number of connected clients
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Runs the server on the calling thread until close is called
+     * Waits for the next tick in select for whole milliseconds, and parks for the nanoseconds left after that,
+     * so it neither ticks late by up to a millisecond nor spins through selectNow until the tick is due
+     */
+    public void run() throws IOException {
+        long nextTick = System.nanoTime();
+        try {
+            while (running) {
+                long remaining = nextTick - System.nanoTime();
+                if (remaining >= 1_000_000) {
+                    selector.select(remaining / 1_000_000);
+                } else {
+                    if (remaining > 0) {
+                        LockSupport.parkNanos(remaining);
+                    }
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    tick();
+                    long delay = (DELAY - game.getSpeedIncr()) * 1_000_000L;
+                    nextTick += delay;
+                    if (now - nextTick >= MAX_CATCH_UP_TICKS * delay) {
+                        nextTick = now + delay;
+                    }
+                }
+            }
+        } catch (ClosedSelectorException ex) {
+            // closed while selecting, nothing left to do
+        } finally {
+            for (Client client : clients) {
+                client.channel.close();
+            }
+            clients.clear();
+            server.close();
+            selector.close();
+        }
+    }
+
+    /**
+     * Stops run, the clients are disconnected and the port is closed by the thread that runs the server
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Client client = (Client) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(client);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(client);
+            }
+        } catch (IOException ex) {
+            disconnect(client);
+        }
+    }
+
+    /**
+     * Accepts a new client and sends it a keyframe right away
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Client client = new Client(channel);
+        channel.register(selector, SelectionKey.OP_READ, client);
+        clients.add(client);
+        try {
+            send(client, encodeKeyframe());
+        } catch (IOException ex) {
+            disconnect(client);
+        }
+    }
+
+    /**
+     * Reads the key presses of a client into inputQueue, bytes that are not a Direction are ignored
+     */
+    private void read(Client client) throws IOException {
+        int read = client.channel.read(client.input);
+        if (read < 0) {
+            disconnect(client);
+            return;
+        }
+        client.input.flip();
+        while (client.input.hasRemaining()) {
+            int ordinal = client.input.get();
+            if (ordinal >= 0 && ordinal < DIRECTIONS.length) {
+                inputQueue.offer(DIRECTIONS[ordinal]);
+            }
+        }
+        client.input.clear();
+    }
+
+    private void disconnect(Client client) throws IOException {
+        clients.remove(client);
+        client.channel.close();
+    }
+
+    /**
+     * Moves the snake, or starts a new game after a collision, then sends the frame of the tick to every client
+     */
+    private void tick() throws IOException {
+        if (game.isCollision()) {
+            game.newGame();
+            inputQueue.clear();
+        } else {
+            game.move(inputQueue.nextTurn(game.getHeading()));
+        }
+        frame++;
+
+        boolean keyframeDue = game.getChangedCells().isAll() || frame % KEYFRAME_TICKS == 0;
+        ByteBuffer delta = keyframeDue ? null : encodeDelta();
+        ByteBuffer keyframe = null;
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+            if (client.isWriting()) {
+                client.needsKeyframe = true;
+                continue;
+            }
+            try {
+                if (keyframeDue || client.needsKeyframe) {
+                    if (keyframe == null) {
+                        keyframe = encodeKeyframe();
+                    }
+                    send(client, keyframe.duplicate());
+                } else {
+                    send(client, delta.duplicate());
+                }
+            } catch (IOException ex) {
+                disconnect(client);
+            }
+        }
+    }
+
+    /**
+     * Starts sending a frame to a client, whatever the socket does not take now is sent once it is writable again
+     */
+    private void send(Client client, ByteBuffer output) throws IOException {
+        client.output = output;
+        client.needsKeyframe = false;
+        write(client);
+    }
+
+    private void write(Client client) throws IOException {
+        client.channel.write(client.output);
+        SelectionKey key = client.channel.keyFor(selector);
+        key.interestOps(client.isWriting() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    /**
+     * Starts a frame in encoder: the length is filled in by finish
+     */
+    private void startFrame(byte type, int capacity) {
+        if (encoder.capacity() < capacity) {
+            encoder = ByteBuffer.allocate(Math.max(capacity, encoder.capacity() * 2));
+        }
+        encoder.clear();
+        encoder.putInt(0);
+        encoder.put(type);
+        encoder.put(game.isCollision() ? COLLISION : 0);
+        putVarint(encoder, frame);
+        putVarint(encoder, zigzag(game.getScore()));
+        putVarint(encoder, zigzag(game.getSpeedIncr()));
+        putVarint(encoder, game.getSnakeLength() == 0 ? 0 : game.getSnakeBody().head() + 1);
+    }
+
+    /**
+     * Fills in the length of the frame in encoder, and copies it into a buffer of its own, shared by every client
+     */
+    private ByteBuffer finish() {
+        encoder.putInt(0, encoder.position() - Integer.BYTES);
+        return ByteBuffer.wrap(Arrays.copyOf(encoder.array(), encoder.position())).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer encodeDelta() {
+        ChangedCells changedCells = game.getChangedCells();
+        startFrame(DELTA, 64 + changedCells.size() * 6);
+        Board board = game.getBoard();
+        putVarint(encoder, changedCells.size());
+        for (int i = 0; i < changedCells.size(); i++) {
+            int cell = changedCells.get(i);
+            putVarint(encoder, cell);
+            encoder.put(board.getOrdinal(cell));
+        }
+        return finish();
+    }
+
+    /**
+     * Encodes the whole board as runs of the same gamePiece, so walls and the floor take a few bytes each
+     * The cells are read straight from the chunk arrays of the Board, one row of a chunk at a time, and a row of a
+     * shared chunk of a single gamePiece only makes its run longer without reading its cells, so the time of a
+     * keyframe grows with the chunks that hold walls or the snake and the rows of the level, not with its area
+     */
+    private ByteBuffer encodeKeyframe() {
+        Board board = game.getBoard();
+        startFrame(KEYFRAME, 64);
+        putVarint(encoder, board.getCols());
+        putVarint(encoder, board.getRows());
+        runPiece = board.getOrdinal(0);
+        runLength = 0;
+        for (int row = 0; row < board.getRows(); row++) {
+            int chunkRow = row / Board.CHUNK_SIZE * board.getChunkCols();
+            int offset = row % Board.CHUNK_SIZE * Board.CHUNK_SIZE;
+            for (int firstCol = 0; firstCol < board.getCols(); firstCol += Board.CHUNK_SIZE) {
+                int chunk = chunkRow + firstCol / Board.CHUNK_SIZE;
+                int width = Math.min(Board.CHUNK_SIZE, board.getCols() - firstCol);
+                int uniform = board.uniformOrdinal(chunk);
+                if (uniform >= 0) {
+                    addToRun((byte) uniform, width);
+                    continue;
+                }
+                byte[] cells = board.chunkCells(chunk);
+                for (int col = 0; col < width; col++) {
+                    addToRun(cells[offset + col], 1);
+                }
+            }
+        }
+        putRun(runPiece, runLength);
+        return finish();
+    }
+
+    /**
+     * Adds length cells of piece to the run encodeKeyframe is building, the run is written first if it holds
+     * another gamePiece
+     */
+    private void addToRun(byte piece, int length) {
+        if (piece != runPiece) {
+            putRun(runPiece, runLength);
+            runPiece = piece;
+            runLength = 0;
+        }
+        runLength += length;
+    }
+
+    private void putRun(byte piece, int length) {
+        if (encoder.remaining() < 16) {
+            ByteBuffer grown = ByteBuffer.allocate(encoder.capacity() * 2);
+            encoder.flip();
+            grown.put(encoder);
+            encoder = grown;
+        }
+        encoder.put(piece);
+        putVarint(encoder, length);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint, 7 bits per byte with the high bit set on every byte but the last
+     */
+    static void putVarint(ByteBuffer output, long value) {
+        while ((value & ~0x7FL) != 0) {
+            output.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint written by putVarint
+     */
+    static long getVarint(ByteBuffer input) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @return value with its sign moved to the lowest bit, so small negative values make short varints
+     */
+    static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return value that was zigzag encoded
+     */
+    static int unzigzag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String[] levelArgs = new String[0];
+        int mapChoice = 0;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port")) {
+                port = Integer.parseInt(args[++i]);
+            } else if (args[i].matches("\\d+")) {
+                mapChoice = Integer.parseInt(args[i]);
+            } else {
+                levelArgs = new String[]{args[i]};
+            }
+        }
+        try (GameServer server = new GameServer(new GameManager(levelArgs, mapChoice), port)) {
+            System.out.println("Snake server listening on port " + server.getPort());
+            server.run();
+        }
+    }
+}
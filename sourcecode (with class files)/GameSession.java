@@ -0,0 +1,127 @@
+/**
+ * GameSession.java
+ * Owns the game MainGame shows for as long as the window is open: the GameManager, its GameLoop (--fixed-step),
+ * and its ReplayRecorder (--record)
+ * Restarting, or choosing the level that is already loaded, reuses the GameManager and its board with newGame.
+ * Only choosing a different level makes a new GameManager (the board size changes with the level), the old one
+ * and its stopped GameLoop are let go of at once, so switching levels for days never adds up
+ * A replay file holds a single level, so with --record every level loaded after the first is recorded into a file of
+ * its own, numbered from 2 before the extension: games.snkr, games-2.snkr, games-3.snkr, ...
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+public class GameSession {
+    private final String[] args;
+    private final boolean fixedStep;
+    private final int delay;
+    private final Policy input;
+    private final Runnable onCollision;
+    private final String recordFile;
+    private final GameMetrics metrics;
+
+    private GameManager game;
+    private int mapChoice = -1;
+    private GameLoop gameLoop;
+    private volatile ReplayRecorder recorder;
+    private int recordedLevels = 0;
+
+    /**
+     * Creates a new GameSession, no level is loaded until open is called
+     * @param options commandLine options, the level file, --fixed-step, and --record are used
+     * @param delay base delay between ticks in milliseconds, for the GameLoop
+     * @param input Policy that gives the direction of every tick of the GameLoop
+     * @param onCollision called on the simulation thread after the GameLoop ticked into a collision
+     * @param metrics GameMetrics every GameManager records to, null if there are none
+     */
+    GameSession(GameOptions options, int delay, Policy input, Runnable onCollision, GameMetrics metrics) {
+        this.args = options.getLevelArgs();
+        this.fixedStep = options.isFixedStep();
+        this.delay = delay;
+        this.input = input;
+        this.onCollision = onCollision;
+        this.recordFile = options.getRecordFile();
+        this.metrics = metrics;
+        if (recordFile != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+        }
+    }
+
+    /**
+     * Loads a level and starts a new game on it, the GameLoop has to be stopped
+     * If the level is already loaded, only a new game is started on the same GameManager
+     * @param mapChoice built-in level to load, not used if there is a level file
+     * @return true if a different level was loaded, so its size and walls might have changed
+     */
+    public boolean open(int mapChoice) throws IOException {
+        if (game != null && (args.length != 0 || mapChoice == this.mapChoice)) {
+            restart();
+            return false;
+        }
+        GameManager newGame = new GameManager(args, mapChoice);
+        newGame.setMetrics(metrics);
+        if (recordFile != null) {
+            close();
+            recorder = new ReplayRecorder(recordPath(++recordedLevels), newGame);
+            newGame.setRecorder(recorder);
+        }
+        this.game = newGame;
+        this.mapChoice = mapChoice;
+        this.gameLoop = fixedStep ? new GameLoop(newGame, delay, input, onCollision) : null;
+        return true;
+    }
+
+    /**
+     * @param level number of the level loaded in this session, from 1
+     * @return replay file the level is recorded into, the --record file for the first level
+     */
+    private Path recordPath(int level) {
+        if (level == 1) {
+            return Path.of(recordFile);
+        }
+        Path file = Path.of(recordFile);
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String numbered = dot > 0 ? name.substring(0, dot) + "-" + level + name.substring(dot)
+                : name + "-" + level;
+        return file.resolveSibling(numbered);
+    }
+
+    /**
+     * Starts a new game on the level that is loaded, the GameLoop has to be stopped
+     */
+    public void restart() {
+        game.newGame();
+        if (gameLoop != null) {
+            gameLoop.publishSnapshot();
+        }
+    }
+
+    /**
+     * @return GameManager of the level that is loaded, null before the first open
+     */
+    public GameManager getGame() {
+        return game;
+    }
+
+    /**
+     * @return GameLoop that ticks the game with --fixed-step, null without it
+     */
+    public GameLoop getGameLoop() {
+        return gameLoop;
+    }
+
+    /**
+     * Ends the recorded game and closes the replay file, if games are being recorded
+     */
+    public void close() {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
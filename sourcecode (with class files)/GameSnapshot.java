@@ -0,0 +1,55 @@
+/**
+ * GameSnapshot.java
+ * An immutable copy of everything that changes during a game, taken after a tick by GameLoop
+ * The renderer draws from snapshots, so it never reads GameManager while the simulation thread changes it
+ * @param tick number of the tick this snapshot was taken after
+ * @param publishedNanos System.nanoTime when the snapshot was taken
+ * @param tickNanos nanoseconds until the next tick
+ * @param snake cells of the snake (row * maxCol + col), from head to tail
+ * @param appleCell cell of the APPLE, -1 if there is none
+ * @param applePiece type of APPLE at appleCell
+ * @param score score after the tick
+ * @param speedIncr speedIncr after the tick
+ * @param collision true if the snake collided on this tick
+ */
+public record GameSnapshot(long tick, long publishedNanos, long tickNanos, int[] snake, int appleCell,
+                           GamePieces applePiece, int score, int speedIncr, boolean collision) {
+
+    /**
+     * Takes a snapshot of a game
+     * @param game GameManager to copy from, must not be changed while this runs
+     * @param tick number of the last tick
+     * @param publishedNanos System.nanoTime of the last tick
+     * @param tickNanos nanoseconds until the next tick
+     * @return a new GameSnapshot
+     */
+    public static GameSnapshot of(GameManager game, long tick, long publishedNanos, long tickNanos) {
+        SnakeBody body = game.getSnakeBody();
+        int[] snake = new int[body.size()];
+        for (int i = 0; i < snake.length; i++) {
+            snake[i] = body.get(i);
+        }
+        int appleCell = -1;
+        GamePieces applePiece = GamePieces.EMPTY;
+        if (game.getAppleRow() >= 0) {
+            appleCell = game.getAppleRow() * game.getMaxCol() + game.getAppleCol();
+            applePiece = game.getBoard().get(appleCell);
+        }
+        return new GameSnapshot(tick, publishedNanos, tickNanos, snake, appleCell, applePiece,
+                game.getScore(), game.getSpeedIncr(), game.isCollision());
+    }
+
+    /**
+     * @return cell of the snake head
+     */
+    public int head() {
+        return snake[0];
+    }
+
+    /**
+     * @return cell of the snake tail
+     */
+    public int tail() {
+        return snake[snake.length - 1];
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * InputQueue.java
+ * Bounded single-producer/single-consumer queue of Directions between the key listener and the tick
+ * The producer (the EDT) only writes tail and the consumer (whatever runs the tick) only writes head,
+ * each published with release/acquire ordering, so neither side takes a lock or allocates.
+ * If the queue is full, new key presses are dropped
+ */
+import java.util.concurrent.atomic.AtomicLong;
+
+public class InputQueue {
+    private final Direction[] buffer;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a new, empty InputQueue
+     * @param capacity number of Directions it can hold, rounded up to a power of two
+     */
+    InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.buffer = new Direction[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds a Direction to the end of the queue, producer side
+     * @param direction Direction of the key that was pressed
+     * @return false if the queue was full and the Direction was dropped
+     */
+    public boolean offer(Direction direction) {
+        long currentTail = tail.getPlain();
+        if (currentTail - head.getAcquire() == buffer.length) {
+            return false;
+        }
+        buffer[(int) currentTail & mask] = direction;
+        tail.setRelease(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Removes the Direction at the front of the queue, consumer side
+     * @return the Direction, null if the queue is empty
+     */
+    public Direction poll() {
+        long currentHead = head.getPlain();
+        if (currentHead == tail.getAcquire()) {
+            return null;
+        }
+        Direction direction = buffer[(int) currentHead & mask];
+        head.setRelease(currentHead + 1);
+        return direction;
+    }
+
+    /**
+     * Finds the Direction to move in on this tick, consumer side
+     * Directions that are the same as heading, or the reverse of it, are not turns and are skipped,
+     * so at most one valid turn is used per tick and the rest stay queued for the next ticks
+     * @param heading Direction the snake actually moved in on the last tick
+     * @return the first valid turn in the queue, or heading if there is none
+     */
+    public Direction nextTurn(Direction heading) {
+        Direction direction = poll();
+        while (direction != null) {
+            if (direction != heading && direction != heading.opposite()) {
+                return direction;
+            }
+            direction = poll();
+        }
+        return heading;
+    }
+
+    /**
+     * Removes every Direction in the queue, consumer side
+     */
+    public void clear() {
+        head.setRelease(tail.getAcquire());
+    }
+}
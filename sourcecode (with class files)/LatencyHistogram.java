@@ -0,0 +1,122 @@
+/**
+ * LatencyHistogram.java
+ * Histogram of durations in nanoseconds with buckets of about 3% of their value, like an HdrHistogram:
+ * every power of two is split into SUB_BUCKETS linear buckets, so it covers 1 ns to MAX_VALUE with a fixed array
+ * record never locks or allocates, it only increments atomic counters, so any thread can record while others read
+ * The numbers read while recording goes on are not a single snapshot, every counter is only read once
+ */
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Longest duration told apart, about 18 minutes, longer ones are counted in the last bucket */
+    static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a duration
+     * @param nanos duration in nanoseconds, negative durations are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return bucket of value: values below SUB_BUCKETS have a bucket each, above that every power of two
+     * has SUB_BUCKETS buckets, picked by the SUB_BITS bits after the highest bit
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return smallest value that is counted in bucket index
+     */
+    private static long lowestOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * @return number of durations recorded
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return mean duration in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return longest duration recorded in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return duration in nanoseconds that percentile of the recorded durations are at or below, as the middle of its
+     * bucket (never more than getMax), 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        if (target >= total) {
+            return max.get();
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                long middle = i + 1 < BUCKETS ? (lowestOf(i) + lowestOf(i + 1) - 1) / 2 : lowestOf(i);
+                return Math.min(middle, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded duration, durations recorded at the same time might be partly kept
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
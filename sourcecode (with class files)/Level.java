@@ -0,0 +1,309 @@
+/**
+ * Level.java
+ * A level of Snake: its size, its walls, and a WallIndex of them, so nothing about a level takes memory per cell
+ * Levels are read once and shared by every GameManager that plays them (see LevelCache), and never change
+ * The board with only the walls on it is built once per level as a Template, newGame copies it instead of
+ * placing every wall again
+ * A level comes from a text level file (see README SECTION IB), from a compiled level file, or is built in
+ *
+ * A compiled level file holds the same level in binary, so it is read through a MappedByteBuffer without any parsing:
+ *   "SNKL", int version, int cols, int rows, int wallCount,
+ *   4 ints per wall (left, right, up, low),
+ *   in version 1 only, the WALL bitmap, one long per 64 cells, which is skipped when it is read
+ * Run with 'java Level level-file compiled-file' to compile a text level file
+ */
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class Level {
+    private static final byte[] MAGIC = {'S', 'N', 'K', 'L'};
+    private static final int VERSION = 2;
+    private static final int BITMAP_VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 4 * Integer.BYTES;
+
+    private static final Level DEFAULT = builtIn("default", 40, 40,
+            "0 39 0 0", "0 39 39 39", "0 0 0 39", "39 39 0 39");
+    private static final Level ZIGZAG = builtIn("zigzag", 71, 45,
+            "0 70 0 0", "0 70 44 44", "0 0 0 44", "70 70 0 44",
+            "10 10 1 35", "20 20 9 43", "30 30 1 35", "40 40 9 43", "50 50 1 35", "60 60 9 43");
+    private static final Level CROSS = builtIn("cross", 60, 60,
+            "0 59 0 0", "0 59 59 59", "0 0 0 59", "59 59 0 59",
+            "27 30 9 48", "9 24 27 30", "33 48 27 30");
+
+    private final String name;
+    private final int cols; //width, x-axis
+    private final int rows; //height, y-axis
+    private final List<Wall> walls;
+    private final WallIndex wallIndex;
+    private volatile Template template;
+
+    /**
+     * The board of a level with only its walls on it, and the count of its free cells
+     * Never changed after it is built, GameManager resets its own Board and FreeCells to it
+     */
+    record Template(Board board, FreeCells freeCells) {
+    }
+
+    private Level(String name, int cols, int rows, List<Wall> walls) {
+        this.name = name;
+        this.cols = cols;
+        this.rows = rows;
+        this.walls = List.copyOf(walls);
+        this.wallIndex = new WallIndex(rows, cols, this.walls);
+    }
+
+    /**
+     * Creates a level from its walls, checks that it fits and builds its WallIndex
+     * @param name name used in error messages
+     */
+    private static Level of(String name, int cols, int rows, List<Wall> walls) throws IOException {
+        checkSize(name, cols, rows);
+        for (Wall wall : walls) {
+            checkWall(name, cols, rows, wall);
+        }
+        return new Level(name, cols, rows, walls);
+    }
+
+    /**
+     * Creates a built-in level, its walls are always valid
+     */
+    private static Level builtIn(String name, int cols, int rows, String... wallLines) {
+        List<Wall> walls = new ArrayList<>();
+        for (String line : wallLines) {
+            walls.add(new Wall(line));
+        }
+        try {
+            return of(name, cols, rows, walls);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Uses a switch to choose what built-in level is to be utilized for snake game
+     * @param mapChoice int, 1 is the zigzag level, 2 is the cross level, anything else the default box
+     * @return the built-in Level
+     */
+    public static Level builtIn(int mapChoice) {
+        return switch (mapChoice) {
+            case 1 -> ZIGZAG;
+            case 2 -> CROSS;
+            default -> DEFAULT;
+        };
+    }
+
+    /**
+     * Reads a text or compiled level file, whichever it is
+     * @param file level file
+     * @return the Level in the file
+     */
+    public static Level read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() >= HEADER_BYTES) {
+                ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+                channel.read(magic, 0);
+                if (Arrays.equals(magic.array(), MAGIC)) {
+                    return readCompiled(file, channel);
+                }
+            }
+        }
+        return readText(file);
+    }
+
+    /**
+     * reads a text level file,
+     * the first line is the size (WIDTH HEIGHT), every other line a wall (LEFT RIGHT UP LOW), empty lines are skipped
+     * @param file text file that contains level configs
+     * @return the Level in the file
+     */
+    public static Level readText(File file) throws IOException {
+        try (BufferedReader input = new BufferedReader(new FileReader(file))) {
+            ArrayList<String> levelLines = new ArrayList<>();
+            String line;
+            while ((line = input.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    levelLines.add(line);
+                }
+            }
+            if (levelLines.isEmpty()) {
+                throw new IOException(file + ": WIDTH and HEIGHT are missing");
+            }
+            String[] size = levelLines.get(0).split(" ");
+            int cols = Integer.parseInt(size[0]);
+            int rows = Integer.parseInt(size[1]);
+
+            List<Wall> walls = new ArrayList<>(levelLines.size() - 1);
+            for (String wallLine : levelLines.subList(1, levelLines.size())) {
+                walls.add(new Wall(wallLine));
+            }
+            return of(file.toString(), cols, rows, walls);
+        }
+    }
+
+    /**
+     * reads a compiled level file through a MappedByteBuffer, the walls are checked against the size
+     * Version 1 files, which also hold a WALL bitmap, are still read, their bitmap is skipped
+     */
+    private static Level readCompiled(File file, FileChannel channel) throws IOException {
+        MappedByteBuffer input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        input.position(MAGIC.length);
+        int version = input.getInt();
+        if (version != VERSION && version != BITMAP_VERSION) {
+            throw new IOException(file + ": unknown compiled level version");
+        }
+        int cols = input.getInt();
+        int rows = input.getInt();
+        int wallCount = input.getInt();
+        checkSize(file.toString(), cols, rows);
+        long bitmapBytes = version == BITMAP_VERSION ? ((long) rows * cols + 63) / 64 * Long.BYTES : 0;
+        if (wallCount < 0 || input.remaining() != (long) wallCount * 4 * Integer.BYTES + bitmapBytes) {
+            throw new IOException(file + ": compiled level file is damaged");
+        }
+
+        List<Wall> walls = new ArrayList<>(wallCount);
+        for (int i = 0; i < wallCount; i++) {
+            Wall wall = new Wall(input.getInt(), input.getInt(), input.getInt(), input.getInt());
+            checkWall(file.toString(), cols, rows, wall);
+            walls.add(wall);
+        }
+        return new Level(file.toString(), cols, rows, walls);
+    }
+
+    /**
+     * Writes this level as a compiled level file
+     * @param file file to write, replaced if it exists
+     */
+    public void write(File file) throws IOException {
+        long bytes = HEADER_BYTES + (long) walls.size() * 4 * Integer.BYTES;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer output = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            output.put(MAGIC);
+            output.putInt(VERSION);
+            output.putInt(cols);
+            output.putInt(rows);
+            output.putInt(walls.size());
+            for (Wall wall : walls) {
+                output.putInt(wall.getWallLeftBound());
+                output.putInt(wall.getWallRightBound());
+                output.putInt(wall.getWallUpBound());
+                output.putInt(wall.getWallLowBound());
+            }
+            output.force();
+        }
+    }
+
+    /**
+     * Checks that the level size is over 0 and that a Board of that size can be made
+     */
+    private static void checkSize(String name, int cols, int rows) throws IOException {
+        if (rows <= 0 || cols <= 0) {
+            throw new IOException(name + ": WIDTH and HEIGHT must be over 0");
+        }
+        if ((long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IOException(name + ": " + cols + "x" + rows + " board is too big");
+        }
+    }
+
+    /**
+     * Checks that a wall is inside the board
+     */
+    private static void checkWall(String name, int cols, int rows, Wall wall) throws IOException {
+        if (wall.getWallLeftBound() < 0 || wall.getWallRightBound() >= cols
+                || wall.getWallUpBound() < 0 || wall.getWallLowBound() >= rows) {
+            throw new IOException(name + ": WALL is outside of the " + cols + "x" + rows + " board");
+        }
+    }
+
+    /**
+     * Gets the Template of this level, it is built the first time it is needed
+     * Every wall is placed with Board.fill, so chunks of the board that are all WALL or all EMPTY stay shared
+     * (see Board) and a huge level with big walls takes little memory and time to build
+     * @return the Template of this level
+     */
+    Template getTemplate() {
+        Template built = template;
+        if (built == null) {
+            synchronized (this) {
+                built = template;
+                if (built == null) {
+                    Board board = new Board(rows, cols);
+                    for (Wall wall : walls) {
+                        board.fill(wall.getWallUpBound(), wall.getWallLowBound(),
+                                wall.getWallLeftBound(), wall.getWallRightBound(), GamePieces.WALL);
+                    }
+                    board.compact();
+                    FreeCells freeCells = new FreeCells(board);
+                    freeCells.addAll(board);
+                    built = new Template(board, freeCells);
+                    template = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * @param row row int of the cell
+     * @param col col int of the cell
+     * @return true if the cell is a WALL, answered by the WallIndex and not the board
+     */
+    public boolean isWall(int row, int col) {
+        return wallIndex.isWall(row, col);
+    }
+
+    /**
+     * @return the WallIndex of this level, for finding the walls in a rectangle
+     */
+    public WallIndex getWallIndex() {
+        return wallIndex;
+    }
+
+    /**
+     * @return name of the level file, or of the built-in level
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of columns (WIDTH)
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return number of rows (HEIGHT)
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return every wall of the level, the List can not be changed
+     */
+    public List<Wall> getWalls() {
+        return walls;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: java Level level-file compiled-file");
+            return;
+        }
+        Level level = read(new File(args[0]));
+        level.write(new File(args[1]));
+        System.out.println("compiled " + level.getCols() + "x" + level.getRows() + " level with "
+                + level.getWalls().size() + " walls into " + args[1]);
+    }
+}
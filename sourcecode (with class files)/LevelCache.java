@@ -0,0 +1,66 @@
+/**
+ * LevelCache.java
+ * Keeps every Level that was read from a file, keyed by the path of the file,
+ * so playing, switching, and restarting a level only read the file again when it changed
+ * (when its last modified time or size is different)
+ * Safe to use from several threads, like the workers of BatchRunner
+ * Every get makes a GameEvents.LevelLoad for Flight Recorder
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class LevelCache {
+    private static final ConcurrentHashMap<Path, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * A Level and the file attributes it was read with
+     */
+    private record Entry(FileTime modified, long size, Level level) {
+    }
+
+    private LevelCache() {
+    }
+
+    /**
+     * Gets the Level in a text or compiled level file, only reading the file if it is not cached or has changed
+     * @param file level file
+     * @return the Level in the file
+     */
+    public static Level get(File file) throws IOException {
+        GameEvents.LevelLoad event = new GameEvents.LevelLoad();
+        event.begin();
+        Path path = file.toPath().toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Entry entry = CACHE.get(path);
+        boolean cached = entry != null && entry.modified().equals(attributes.lastModifiedTime())
+                && entry.size() == attributes.size();
+        Level level;
+        if (cached) {
+            level = entry.level();
+        } else {
+            level = Level.read(file);
+            CACHE.put(path, new Entry(attributes.lastModifiedTime(), attributes.size(), level));
+        }
+        if (event.shouldCommit()) {
+            event.rows = level.getRows();
+            event.cols = level.getCols();
+            event.file = path.toString();
+            event.cached = cached;
+            event.walls = level.getWalls().size();
+            event.commit();
+        }
+        return level;
+    }
+
+    /**
+     * Forgets every cached Level
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+}
@@ -3,6 +3,18 @@
  * The main GUI display for snake game
  * Extends JFrame, and includes a nested class (MainGamePanel)
  * MainGame includes the MainGamePanel, infoPanel (displays score, and startButton)
+ * By default the game is ticked by gameTimer on the EDT, and the labels and the delay of gameTimer are only changed
+ * when the GameManager tells labelUpdater that the score or speed changed, not on every tick
+ * With --fixed-step, a GameLoop ticks the game on its own thread and gameTimer only draws frames at display rate
+ * With --record, every game is recorded by a ReplayRecorder, which is closed when the program exits
+ * The GameManager, GameLoop, and ReplayRecorder belong to a GameSession. The play panel, MainGamePanel, and gameTimer
+ * are made once and reused for every level and restart, so switching levels never piles up panels or timers
+ * With --autopilot, an Autopilot chooses every move instead of the arrow keys, and games restart on their own
+ * With --connect, the game runs on a GameServer: a GameClient keeps the board up to date and sends the arrow keys,
+ * gameTimer only draws the frames the server sent, and the server starts a new game on its own after a collision
+ * With --metrics, tick, spawn, and paint times and how late every tick ran are published through JMX (GameMetrics)
+ * Levels bigger than VIEW_CELLS cells are shown through a camera that follows the head of the snake
+ * Only the cells that changed are repainted, together if they are close, and one by one if they are far apart
  */
 import javax.swing.*;
 import java.awt.*;
@@ -11,13 +23,23 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class MainGame extends JFrame {
     private GameManager game;
-    private GamePieces[][] board;
     private final String[] args;
+    private final boolean fixedStep;
+    private GameLoop gameLoop;
+    private final GameSession session;
+    private final String connectHost;
+    private final int connectPort;
+    private GameClient client;
+    private final GameMetrics metrics;
 
     private final int cellSize = 10;
+    private static final int VIEW_CELLS = 80;
+    private static final int MERGED_AREA_PER_CELL = 4;
+    private final BoardPainter boardPainter = new BoardPainter(cellSize);
     private int width;
     private int height;
     private final String messageStart = "Press SPACE to Start";
@@ -35,17 +57,48 @@ public class MainGame extends JFrame {
     private final CardLayout cardLayout = new CardLayout();
     private MainGamePanel mainGamePanel;
 
-    private int moveInt;
-    int currMove = KeyEvent.VK_LEFT;
-    int preMove = KeyEvent.VK_LEFT;
+    private final InputQueue inputQueue = new InputQueue(8);
+    private final boolean autopilot;
+    private final Policy input;
+
+    /**
+     * Shows the score and speed of the game ticked by gameTimer, and sets the delay of gameTimer to match its speed
+     * Only registered without --fixed-step, so it is always called on the EDT
+     */
+    private final GameListener labelUpdater = new GameListener() {
+        @Override
+        public void appleEaten(GameManager game, GamePieces apple) {
+            scoreLabel.setText("Current Score: " + game.getScore());
+        }
+
+        @Override
+        public void speedChanged(GameManager game, int speedIncr) {
+            speedLabel.setText("Current Speed: " + speedIncr);
+            gameTimer.setDelay(delay - speedIncr);
+        }
+
+        @Override
+        public void gameReset(GameManager game) {
+            appleEaten(game, null);
+            speedChanged(game, game.getSpeedIncr());
+        }
+    };
 
     /**
      * Constructs a MainGame object, displays the main GUI for the Snake Game
-     * @param args commandLine argument with the name of the Level file (.txt file)
+     * @param options commandLine options, including the name of the Level file (.txt file)
      */
-    public MainGame(String[] args) throws IOException {
+    public MainGame(GameOptions options) throws IOException {
         super("Snake ");
-        this.args = args;
+        this.args = options.getLevelArgs();
+        this.fixedStep = options.isFixedStep();
+        this.autopilot = options.isAutopilot();
+        this.connectHost = options.getConnectHost();
+        this.connectPort = options.getConnectPort();
+        this.metrics = options.isMetrics() ? GameMetrics.register() : null;
+        this.input = autopilot ? new Autopilot() : g -> inputQueue.nextTurn(g.getHeading());
+        this.session = new GameSession(options, delay, input,
+                () -> SwingUtilities.invokeLater(this::gameOver), metrics);
 
         this.setLayout(new GridBagLayout());
 
@@ -61,34 +114,52 @@ public class MainGame extends JFrame {
     }
 
     /**
-     * Sets up width and height to be used for the MainGamePanel
-     * Additionally, sets the GameManager along with the gameBoard from that instance of GameManager
-     * @param args commandLine argument with the name of the Level file (.txt file)
+     * Sets up width and height to be used for the MainGamePanel, at most VIEW_CELLS cells each
+     * Additionally, opens the level in session and takes its GameManager (and GameLoop)
+     * The static layer of the old level is only thrown away if the level changed, a new GameManager gets labelUpdater
+     * With --connect, connects to the GameServer instead, and the size comes from the board it sent
      * @param mapChoice integer that decides what level to display
      */
-    private void setup(String[] args, int mapChoice) throws IOException {
-        this.game = new GameManager(args, mapChoice);
+    private void setup(int mapChoice) throws IOException {
+        if (connectHost != null) {
+            this.client = GameClient.connect(connectHost, connectPort);
+            this.width = Math.min(client.getBoard().getCols(), VIEW_CELLS) * cellSize;
+            this.height = Math.min(client.getBoard().getRows(), VIEW_CELLS) * cellSize;
+            return;
+        }
+        boolean opened = session.open(mapChoice);
+        this.game = session.getGame();
+        this.gameLoop = session.getGameLoop();
+        if (opened) {
+            boardPainter.invalidate();
+            if (gameLoop == null) {
+                game.addListener(labelUpdater);
+                if (scoreLabel != null) {
+                    labelUpdater.gameReset(game);
+                }
+            }
+        }
 
-        this.width = game.getMaxCol() * cellSize;
-        this.height = game.getMaxRow() * cellSize;
-        this.board = game.getBoard();
+        this.width = Math.min(game.getMaxCol(), VIEW_CELLS) * cellSize;
+        this.height = Math.min(game.getMaxRow(), VIEW_CELLS) * cellSize;
     }
 
     /**
      * Sets up the main panel to be displayed
      * If there are no given commandLine arguments, displays a menu screen that allows for different levels to be chosen
      * If there is a commandLine argument, displays that map specified by given level file
+     * With --connect, the server chooses the level, so there is no menu
      */
     private void setMainPanel() throws IOException {
         mainPanel.setLayout(cardLayout);
         mainPanel.setBackground(Color.black);
         mainPanel.setPreferredSize(new Dimension(800,850));
 
-        if (args.length == 0) {
+        if (args.length == 0 && connectHost == null) {
             mainPanel.add(mapMenuPanel());
             cardLayout.first(mainPanel);
         } else {
-            setup(args, mapChoice);
+            setup(mapChoice);
             mainPanel.add(playPanel());
         }
 
@@ -180,16 +251,16 @@ public class MainGame extends JFrame {
 
         defaultChoice.addActionListener(e -> {
             mapChoice = 0;
-            changeMap(args, mapChoice);
+            changeMap(mapChoice);
 
         });
         zigzagChoice.addActionListener(e -> {
             mapChoice = 1;
-            changeMap(args, mapChoice);
+            changeMap(mapChoice);
         });
         crossChoice.addActionListener(e -> {
             mapChoice = 2;
-            changeMap(args, mapChoice);
+            changeMap(mapChoice);
         });
 
         choiceGroup.add(defaultChoice);
@@ -206,13 +277,17 @@ public class MainGame extends JFrame {
     /**
      * changes the level to be displayed, and switches what is being displayed on mainPanel to playPanel (which displays
      * the chosen level)
-     * @param args commandLine argument with the name of the Level file (.txt file)
+     * The playPanel is only made the first time, after that the same one is shown with the new level
      * @param mapChoice integer that decides what level to display
      */
-    private void changeMap(String[] args, int mapChoice) {
+    private void changeMap(int mapChoice) {
         try {
-            setup(args, mapChoice);
-            mainPanel.add(playPanel());
+            setup(mapChoice);
+            if (mainGamePanel == null) {
+                mainPanel.add(playPanel());
+            } else {
+                mainGamePanel.attach();
+            }
             cardLayout.last(mainPanel);
         } catch (IOException ex) {
             throw new RuntimeException(ex);
@@ -238,12 +313,19 @@ public class MainGame extends JFrame {
     private void togglePause() {
         if (paused) {
             paused = false;
+            mainGamePanel.lastTickNanos = 0;
+            if (gameLoop != null) {
+                gameLoop.start();
+            }
             gameTimer.start();
             String messageStop = "Press SPACE to Stop";
             button.setText(messageStop);
         } else {
             paused = true;
             gameTimer.stop();
+            if (gameLoop != null) {
+                gameLoop.stop();
+            }
             button.setText(messageStart);
         }
     }
@@ -252,23 +334,35 @@ public class MainGame extends JFrame {
      * This method is called when the SNAKE collides with itself or a WALL.
      * Ends the current game, stops the timer.
      * Displays a dialog that asks user to start a new game.
-     * If YES is selected, the board, score, speed, direction, and button label is reset.
+     * If YES is selected, the board, score, speed, direction, and button label is reset
+     * (the labels by labelUpdater, or by the next frame with --fixed-step).
      * If NO is selected, the JFrame (MainGame) is forcibly closed.
+     * With autopilot, there is no dialog and the new game starts right away.
+     * If there is a menu, YES goes back to it and the new game is only started once a level is chosen (by open),
+     * so choosing the same level again does not start two games.
      */
     private void gameOver() {
         gameTimer.stop();
-        int choice = JOptionPane.showConfirmDialog(this, "Start new game?", "Game Over!", JOptionPane.YES_NO_OPTION);
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        int choice = autopilot ? JOptionPane.YES_OPTION
+                : JOptionPane.showConfirmDialog(this, "Start new game?", "Game Over!", JOptionPane.YES_NO_OPTION);
         if (choice == 0) {
-            game.newGame();
-            scoreLabel.setText("Current Score: " + game.getScore());
-            speedLabel.setText("Current Speed: " + game.getSpeedIncr());
+            boolean toMenu = !autopilot && args.length == 0;
+            if (!toMenu) {
+                session.restart();
+                mainGamePanel.followHead(headCell());
+                mainGamePanel.shownSnapshot = null;
+            }
             button.setText(messageStart);
-            currMove = KeyEvent.VK_LEFT;
-            preMove = KeyEvent.VK_LEFT;
-            moveInt = 0;
+            inputQueue.clear();
             paused = true;
-            cardLayout.first(mainPanel);
-            delay = 100;
+            if (autopilot) {
+                togglePause();
+            } else {
+                cardLayout.first(mainPanel);
+            }
 
         } else {
             this.dispose();
@@ -277,52 +371,17 @@ public class MainGame extends JFrame {
     }
 
     /**
-     * Loops over the gameBoard and draws on the MainGamePanel depending on the gamePiece
-     * WALL - light brown
-     * SNAKE - light yellow
-     * APPLE - red
-     * GOLDAPPLE - yellow
-     * SPEEDAPPLE - blue
-     * PUMPKINAPPLE - orange
-     * EMPTY - light grass green
-     * @param graphics graphics to draw
+     * @return Board that is drawn, the one of the GameClient with --connect
      */
-    private void fillBoard(Graphics graphics) {
-        for(int i = 0; i < board.length; i++) {
-            for(int j = 0; j < board[0].length; j++) {
-                switch (board[i][j]) {
-                    case WALL -> {
-                        graphics.setColor(new Color(130,100,70));
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    case SNAKE -> {
-                        graphics.setColor(new Color(255,255,150));
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    case APPLE -> {
-                        graphics.setColor(Color.red);
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    case GOLDAPPLE -> {
-                        graphics.setColor(Color.YELLOW);
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    case SPEEDAPPLE -> {
-                        graphics.setColor(Color.BLUE);
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    case PUMPKINAPPLE -> {
-                        graphics.setColor(Color.ORANGE);
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
-                    default -> {
-                        graphics.setColor(new Color(154,247,100));
-                        graphics.fillRect(j * cellSize, i * cellSize, cellSize, cellSize);
-                    }
+    private Board board() {
+        return client != null ? client.getBoard() : game.getBoard();
+    }
 
-                }
-            }
-        }
+    /**
+     * @return cell (row * maxCol + col) of the head of the snake, -1 if there is none
+     */
+    private int headCell() {
+        return client != null ? client.getHead() : game.getHeadRow() * game.getMaxCol() + game.getHeadCol();
     }
 
     /**
@@ -330,15 +389,29 @@ public class MainGame extends JFrame {
      * This is where the graphics of Snake Game is drawn and set-up
      */
     private class MainGamePanel extends JPanel implements KeyListener, ActionListener {
+        private GameSnapshot shownSnapshot;
+        private GameSnapshot previousSnapshot;
+        private int cameraRow;
+        private int cameraCol;
+        private long lastTickNanos;
+        private int[] dirtyCells = new int[8];
+        private int dirtyCount = 0;
+
         /**
-         * Constructs a MainGamePanel object
-         * Sets the size of this panel
+         * Constructs a MainGamePanel object, only once, it is reused for every level
+         * Sets the size of this panel, and points the camera at the head of the snake
          * Sets the game timer, the default state is paused
+         * With fixedStep (the GameLoop ticks the game) or --connect (the server does),
+         * the game timer fires once per display refresh instead, to draw frames
          */
         public MainGamePanel() {
-            this.setPreferredSize(new Dimension(width, height));
+            attach();
 
-            gameTimer = new Timer(delay, this);
+            if (client != null || fixedStep) {
+                gameTimer = new Timer(frameDelay(), this);
+            } else {
+                gameTimer = new Timer(delay, this);
+            }
 
             gameTimer.stop();
 
@@ -348,25 +421,248 @@ public class MainGame extends JFrame {
         }
 
         /**
-         * Calls GameManager's move method depending on the value of moveInt
+         * Shows the level that was just set up: sizes the panel for it, points the camera at the head of the snake,
+         * and forgets what was shown of the previous level
+         */
+        private void attach() {
+            this.setPreferredSize(new Dimension(width, height));
+            cameraRow = 0;
+            cameraCol = 0;
+            followHead(headCell());
+            shownSnapshot = null;
+            previousSnapshot = null;
+            lastTickNanos = 0;
+            revalidate();
+            repaint();
+        }
+
+        /**
+         * Calls GameManager's move method with the next valid turn in inputQueue,
+         * or the Direction the snake is already heading in if there is none
+         * With autopilot, the Autopilot chooses the Direction instead
+         * With metrics, also records how much later than the delay of gameTimer the tick ran
          */
         private void moveSnake() {
-            switch (moveInt) {
-                case 0 -> game.move(0,-1);
-                case 1 -> game.move(0,1);
-                case 2 -> game.move(1,0);
-                case 3 -> game.move(-1,0);
+            if (metrics != null) {
+                long now = System.nanoTime();
+                if (lastTickNanos != 0) {
+                    metrics.recordDrift(now - lastTickNanos - gameTimer.getDelay() * 1_000_000L);
+                }
+                lastTickNanos = now;
+            }
+            game.move(input.nextMove(game));
+        }
+
+        /**
+         * @return milliseconds between frames at the refresh rate of the screen, 60 Hz if it is unknown
+         */
+        private int frameDelay() {
+            int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+            if (!GraphicsEnvironment.isHeadless()) {
+                refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                        .getDisplayMode().getRefreshRate();
+            }
+            if (refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN) {
+                refreshRate = 60;
+            }
+            return Math.max(1, 1000 / refreshRate);
+        }
+
+        /**
+         * Draws a frame from the latest GameSnapshot published by gameLoop
+         * Repaints the cells that changed since the shown snapshot, and while the head is still moving between
+         * two ticks, repaints the cells it moves between. Labels are only updated if their value changed
+         */
+        private void renderFrame() {
+            GameSnapshot snapshot = gameLoop.getSnapshot();
+            if (snapshot != shownSnapshot) {
+                GameSnapshot shown = shownSnapshot;
+                previousSnapshot = shown != null && snapshot.tick() == shown.tick() + 1 ? shown : null;
+                shownSnapshot = snapshot;
+
+                boolean cameraMoved = followHead(snapshot.head());
+                if (previousSnapshot == null || cameraMoved) {
+                    repaint();
+                } else {
+                    repaintCell(shown.head());
+                    repaintCell(shown.tail());
+                    repaintCell(snapshot.head());
+                    repaintCell(snapshot.tail());
+                    if (shown.appleCell() != snapshot.appleCell()) {
+                        repaintCell(shown.appleCell());
+                        repaintCell(snapshot.appleCell());
+                    }
+                    paintDirtyCells();
+                }
+                if (shown == null || shown.score() != snapshot.score()) {
+                    scoreLabel.setText("Current Score: " + snapshot.score());
+                }
+                if (shown == null || shown.speedIncr() != snapshot.speedIncr()) {
+                    speedLabel.setText("Current Speed: " + snapshot.speedIncr());
+                }
+            } else if (previousSnapshot != null && interpolation() < 1) {
+                repaintCell(previousSnapshot.head());
+                repaintCell(shownSnapshot.head());
+                paintDirtyCells();
+            }
+        }
+
+        /**
+         * @return how far the shown tick is from its start to the next tick, between 0 and 1
+         */
+        private double interpolation() {
+            double alpha = (double) (System.nanoTime() - shownSnapshot.publishedNanos()) / shownSnapshot.tickNanos();
+            return Math.min(1, Math.max(0, alpha));
+        }
+
+        /**
+         * Moves the camera once the head gets within a quarter of the view of its edges, so the head is in the middle
+         * of the view again. The camera never shows anything outside the board, so it stays still on small levels
+         * @param head cell (row * maxCol + col) of the head of the snake, nothing is done if it is -1
+         * @return true if the camera moved, then the whole panel has to be repainted
+         */
+        private boolean followHead(int head) {
+            if (head < 0) {
+                return false;
             }
+            int maxCol = board().getCols();
+            int row = follow(cameraRow, head / maxCol, height / cellSize, board().getRows());
+            int col = follow(cameraCol, head % maxCol, width / cellSize, maxCol);
+            if (row == cameraRow && col == cameraCol) {
+                return false;
+            }
+            cameraRow = row;
+            cameraCol = col;
+            return true;
         }
 
         /**
-         * paints the panel
+         * @return first cell the camera shows along one axis, view cells wide on a board size cells wide
+         */
+        private static int follow(int camera, int head, int view, int size) {
+            int margin = view / 4;
+            if (head - camera < margin || head - camera >= view - margin) {
+                camera = head - view / 2;
+            }
+            return Math.max(0, Math.min(camera, size - view));
+        }
+
+        /**
+         * Adds a single cell of the board to the cells paintDirtyCells repaints
+         * @param cell cell (row * maxCol + col) to repaint, nothing is done if it is -1
+         */
+        private void repaintCell(int cell) {
+            if (cell >= 0) {
+                if (dirtyCount == dirtyCells.length) {
+                    dirtyCells = Arrays.copyOf(dirtyCells, dirtyCount * 2);
+                }
+                dirtyCells[dirtyCount++] = cell;
+            }
+        }
+
+        /**
+         * Repaints the cells given to repaintCell since the last call, if the camera shows them
+         * RepaintManager merges every repaint of the panel into the one rectangle around all of them, so cells that
+         * are far apart (the head and the tail of a long snake) would repaint most of the view. The cells are only
+         * repainted together if that rectangle is at most MERGED_AREA_PER_CELL cells per cell, otherwise every cell
+         * is painted on its own right away with paintImmediately
+         */
+        private void paintDirtyCells() {
+            int maxCol = board().getCols();
+            int viewRows = height / cellSize;
+            int viewCols = width / cellSize;
+            int top = viewRows;
+            int left = viewCols;
+            int bottom = -1;
+            int right = -1;
+            int shown = 0;
+            for (int i = 0; i < dirtyCount; i++) {
+                int row = dirtyCells[i] / maxCol - cameraRow;
+                int col = dirtyCells[i] % maxCol - cameraCol;
+                if (row >= 0 && row < viewRows && col >= 0 && col < viewCols) {
+                    dirtyCells[shown++] = row * viewCols + col;
+                    top = Math.min(top, row);
+                    left = Math.min(left, col);
+                    bottom = Math.max(bottom, row);
+                    right = Math.max(right, col);
+                }
+            }
+            dirtyCount = 0;
+            if (shown == 0) {
+                return;
+            }
+            if ((bottom - top + 1) * (right - left + 1) <= shown * MERGED_AREA_PER_CELL) {
+                repaint(left * cellSize, top * cellSize, (right - left + 1) * cellSize,
+                        (bottom - top + 1) * cellSize);
+                return;
+            }
+            for (int i = 0; i < shown; i++) {
+                paintImmediately(dirtyCells[i] % viewCols * cellSize, dirtyCells[i] / viewCols * cellSize,
+                        cellSize, cellSize);
+            }
+        }
+
+        /**
+         * Repaints only the cells that changed during the last tick (see paintDirtyCells),
+         * or the whole panel if everything changed (a new game) or the camera moved
+         * @param changedCells cells that changed
+         * @param head cell of the head of the snake after the change, -1 if there is none
+         */
+        private void repaintChangedCells(ChangedCells changedCells, int head) {
+            if (changedCells.isAll()) {
+                followHead(head);
+                repaint();
+                return;
+            }
+            if (followHead(head)) {
+                repaint();
+                return;
+            }
+            for (int i = 0; i < changedCells.size(); i++) {
+                repaintCell(changedCells.get(i));
+            }
+            paintDirtyCells();
+        }
+
+        /**
+         * paints the panel, copies the static layer (floor and walls) and draws the snake and apple inside the clip
+         * Makes a GameEvents.Paint for Flight Recorder
+         * With fixedStep, draws from the shown GameSnapshot instead of the GameManager
+         * The board is drawn moved by the camera, so the clip is in board pixels and only the cells shown are visited
          * @param graphics the <code>Graphics</code> object to protect
          */
         @Override
         public void paintComponent(Graphics graphics) {
+            GameEvents.Paint event = new GameEvents.Paint();
+            event.begin();
+            long start = metrics != null ? System.nanoTime() : 0;
             super.paintComponent(graphics);
-            fillBoard(graphics);
+            Graphics boardGraphics = graphics.create();
+            boardGraphics.translate(-cameraCol * cellSize, -cameraRow * cellSize);
+            if (client != null) {
+                boardPainter.fillBoard(boardGraphics, client.getBoard());
+            } else if (gameLoop == null) {
+                boardPainter.paint(boardGraphics, game, getGraphicsConfiguration());
+            } else {
+                GameSnapshot snapshot = shownSnapshot != null ? shownSnapshot : gameLoop.getSnapshot();
+                double alpha = previousSnapshot != null ? interpolation() : 1;
+                boardPainter.paint(boardGraphics, game.getLevel(), previousSnapshot, snapshot, alpha,
+                        getGraphicsConfiguration());
+            }
+            boardGraphics.dispose();
+            if (metrics != null) {
+                metrics.recordPaint(System.nanoTime() - start);
+            }
+            if (event.shouldCommit()) {
+                Board board = board();
+                Rectangle clip = graphics.getClipBounds();
+                event.rows = board.getRows();
+                event.cols = board.getCols();
+                event.snakeLength = game != null ? game.getSnakeLength() : 0;
+                event.cells = clip == null ? (long) width * height / cellSize / cellSize
+                        : (long) clip.width * clip.height / cellSize / cellSize;
+                event.commit();
+            }
         }
 
         @Override
@@ -375,25 +671,29 @@ public class MainGame extends JFrame {
         }
 
         /**
-         * Changes the value of moveInt depending on the key pressed
+         * Adds the Direction of the arrow key pressed to inputQueue, it is checked against the heading of the snake
+         * when the tick uses it, so quick key presses are never lost or turn the snake back on itself
+         * With --connect, the Direction is sent to the server instead, which keeps an InputQueue of its own
          * @param e the event to be processed
          */
         @Override
         public void keyPressed(KeyEvent e) {
-            if (!paused) {
-                currMove = e.getKeyCode();
-                if (currMove == KeyEvent.VK_LEFT && preMove != KeyEvent.VK_RIGHT) {
-                    moveInt = 0;
-                    preMove = KeyEvent.VK_LEFT;
-                } else if (currMove == KeyEvent.VK_RIGHT && preMove != KeyEvent.VK_LEFT) {
-                    moveInt = 1;
-                    preMove = KeyEvent.VK_RIGHT;
-                } else if (currMove == KeyEvent.VK_DOWN && preMove != KeyEvent.VK_UP) {
-                    moveInt = 2;
-                    preMove = KeyEvent.VK_DOWN;
-                } else if (currMove == KeyEvent.VK_UP && preMove != KeyEvent.VK_DOWN) {
-                    moveInt = 3;
-                    preMove = KeyEvent.VK_UP;
+            Direction direction = switch (e.getKeyCode()) {
+                case KeyEvent.VK_LEFT -> Direction.LEFT;
+                case KeyEvent.VK_RIGHT -> Direction.RIGHT;
+                case KeyEvent.VK_DOWN -> Direction.DOWN;
+                case KeyEvent.VK_UP -> Direction.UP;
+                default -> null;
+            };
+            if (!paused && direction != null) {
+                if (client == null) {
+                    inputQueue.offer(direction);
+                } else {
+                    try {
+                        client.send(direction);
+                    } catch (IOException ex) {
+                        // the next poll finds the lost connection
+                    }
                 }
             }
 
@@ -407,28 +707,54 @@ public class MainGame extends JFrame {
         public void keyReleased(KeyEvent e) {
         }
 
+        /**
+         * Applies the frames the server sent since the last call, and repaints the cells they changed
+         * If the connection is lost, the game stops and a message is shown
+         */
+        private void pollServer() {
+            try {
+                if (client.poll()) {
+                    scoreLabel.setText("Current Score: " + client.getScore());
+                    speedLabel.setText("Current Speed: " + client.getSpeedIncr());
+                    repaintChangedCells(client.getChangedCells(), client.getHead());
+                }
+            } catch (IOException ex) {
+                gameTimer.stop();
+                JOptionPane.showMessageDialog(MainGame.this, "Lost connection to the server: " + ex.getMessage(),
+                        "Game Over!", JOptionPane.ERROR_MESSAGE);
+                MainGame.this.dispose();
+            }
+        }
+
         /**
          * Drives the gameplay for snake game
+         * With --connect, the server drives the gameplay and this only draws its frames
+         * With fixedStep, gameLoop drives the gameplay and this only draws a frame
          * if the snake is not colliding on itself or a wall:
-         * Calls moveSnake to move the snake
-         * Updates the scoreLabel
-         * repaints the board to match the changes in gameBoard
+         * Calls moveSnake to move the snake (labelUpdater updates the labels and delay if they changed)
+         * repaints the cells of the board that changed
          * Else, gameOver is called.
          * @param e the event to be processed
          */
         @Override
         public void actionPerformed(ActionEvent e) {
+            if (client != null) {
+                pollServer();
+                this.requestFocusInWindow();
+                return;
+            }
+            if (gameLoop != null) {
+                renderFrame();
+                this.requestFocusInWindow();
+                return;
+            }
             if (!game.isCollision()) {
                 moveSnake();
-                scoreLabel.setText("Current Score: " + game.getScore());
-                speedLabel.setText("Current Speed: " + game.getSpeedIncr());
-                repaint();
+                repaintChangedCells(game.getChangedCells(), headCell());
                 this.requestFocusInWindow();
             } else {
                 gameOver();
             }
-
-            gameTimer.setDelay(delay - game.getSpeedIncr());
         }
     }
 
@@ -0,0 +1,13 @@
+/**
+ * Policy.java
+ * Chooses which Direction the snake moves in on the next tick
+ * Used by SnakeEngine to drive games without a keyboard
+ */
+@FunctionalInterface
+public interface Policy {
+    /**
+     * @param game the GameManager of the game being played
+     * @return Direction the snake should move in next
+     */
+    Direction nextMove(GameManager game);
+}
@@ -0,0 +1,182 @@
+/**
+ * ReplayPlayer.java
+ * Reads a replay file written by ReplayRecorder and plays its games back headlessly with a SnakeEngine
+ * seek fast-forwards to any tick of any game, as fast as SnakeEngine runs, without drawing anything
+ * Run with 'java ReplayPlayer replay-file [game] [tick]' to print the board, score, and length at that tick
+ * (the last tick of the first game by default)
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ReplayPlayer {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final String[] levelArgs;
+    private final int mapChoice;
+    private final ArrayList<Game> games = new ArrayList<>();
+
+    /**
+     * A recorded game
+     * @param seed seed the game was started with
+     * @param tickCount number of ticks the game ran for
+     * @param changeTicks ticks where the direction changed, in order
+     * @param changeDirections Direction ordinal of each change
+     */
+    private record Game(long seed, long tickCount, long[] changeTicks, byte[] changeDirections) {
+    }
+
+    private ReplayPlayer(String[] levelArgs, int mapChoice) {
+        this.levelArgs = levelArgs;
+        this.mapChoice = mapChoice;
+    }
+
+    /**
+     * Reads a replay file
+     * @param file path of the replay file
+     * @return ReplayPlayer with every game of the file
+     */
+    public static ReplayPlayer read(Path file) throws IOException {
+        ByteBuffer input;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            input = ByteBuffer.allocate((int) channel.size());
+            while (input.hasRemaining() && channel.read(input) >= 0) {
+                // keep reading until the whole file is in input
+            }
+            input.flip();
+        }
+
+        byte[] magic = new byte[ReplayRecorder.MAGIC.length];
+        input.get(magic);
+        if (!Arrays.equals(magic, ReplayRecorder.MAGIC) || input.get() != ReplayRecorder.VERSION) {
+            throw new IOException(file + " is not a replay file");
+        }
+
+        ReplayPlayer player;
+        if (input.get() == ReplayRecorder.BUILT_IN_LEVEL) {
+            player = new ReplayPlayer(new String[0], (int) getVarint(input));
+        } else {
+            byte[] path = new byte[(int) getVarint(input)];
+            input.get(path);
+            player = new ReplayPlayer(new String[]{new String(path, StandardCharsets.UTF_8)}, 0);
+        }
+
+        while (input.hasRemaining() && input.get() == ReplayRecorder.GAME) {
+            long seed = input.getLong();
+            long[] changeTicks = new long[16];
+            byte[] changeDirections = new byte[16];
+            int changes = 0;
+            long tick = 0;
+            while (input.hasRemaining()) {
+                long delta = getVarint(input);
+                if (delta == 0) {
+                    tick += getVarint(input);
+                    break;
+                }
+                tick += delta;
+                if (changes == changeTicks.length) {
+                    changeTicks = Arrays.copyOf(changeTicks, changes * 2);
+                    changeDirections = Arrays.copyOf(changeDirections, changes * 2);
+                }
+                changeTicks[changes] = tick;
+                changeDirections[changes] = input.get();
+                changes++;
+            }
+            player.games.add(new Game(seed, tick, Arrays.copyOf(changeTicks, changes),
+                    Arrays.copyOf(changeDirections, changes)));
+        }
+        return player;
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint written by ReplayRecorder
+     */
+    private static long getVarint(ByteBuffer input) {
+        long value = 0;
+        int shift = 0;
+        byte next;
+        do {
+            next = input.get();
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        } while ((next & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * @return number of games in the replay
+     */
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * @param game index of the game
+     * @return seed the game was started with
+     */
+    public long getSeed(int game) {
+        return games.get(game).seed();
+    }
+
+    /**
+     * @param game index of the game
+     * @return number of ticks the game ran for
+     */
+    public long getTickCount(int game) {
+        return games.get(game).tickCount();
+    }
+
+    /**
+     * Creates a SnakeEngine on the level of the replay, set up for the first game
+     * @return a new SnakeEngine
+     */
+    public SnakeEngine newEngine() throws IOException {
+        return new SnakeEngine(new GameManager(levelArgs, mapChoice, getSeed(0)));
+    }
+
+    /**
+     * Starts game again on engine and fast-forwards it to tick
+     * Stops early if the game ends before tick
+     * @param engine SnakeEngine created by newEngine
+     * @param game index of the game
+     * @param tick tick to fast-forward to, 0 is the start of the game
+     */
+    public void seek(SnakeEngine engine, int game, long tick) {
+        Game replay = games.get(game);
+        engine.reset(replay.seed());
+
+        Direction direction = Direction.LEFT;
+        int nextChange = 0;
+        long end = Math.min(tick, replay.tickCount());
+        while (engine.getTick() < end && !engine.getGame().isCollision()) {
+            if (nextChange < replay.changeTicks().length && replay.changeTicks()[nextChange] == engine.getTick() + 1) {
+                direction = DIRECTIONS[replay.changeDirections()[nextChange]];
+                nextChange++;
+            }
+            engine.step(direction);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: java ReplayPlayer replay-file [game] [tick]");
+            return;
+        }
+        ReplayPlayer player = read(Path.of(args[0]));
+        int game = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long tick = args.length > 2 ? Long.parseLong(args[2]) : player.getTickCount(game);
+
+        SnakeEngine engine = player.newEngine();
+        player.seek(engine, game, tick);
+        GameManager manager = engine.getGame();
+        System.out.print(manager);
+        System.out.println("game " + game + " of " + player.getGameCount() + ", tick " + engine.getTick()
+                + " of " + player.getTickCount(game) + ", score " + manager.getScore()
+                + ", length " + manager.getSnakeLength() + (manager.isCollision() ? ", game over" : ""));
+    }
+}
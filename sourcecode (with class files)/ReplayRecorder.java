@@ -0,0 +1,158 @@
+/**
+ * ReplayRecorder.java
+ * Records games into a compact binary replay file, so they can be played back exactly with ReplayPlayer
+ * Only the level, the seed of each game, and the ticks where the direction changed are stored,
+ * each change as a varint of the ticks since the previous change plus one byte for the Direction.
+ * Everything is written through a buffer into a FileChannel, the buffer is flushed at the end of every game
+ *
+ * File format:
+ *   "SNKR", version byte
+ *   level: byte 0 + varint mapChoice (built-in level), or byte 1 + varint length + UTF-8 path (level file)
+ *   then for every game:
+ *     byte GAME, 8 byte seed
+ *     every change: varint ticks since the previous change (at least 1), byte Direction ordinal
+ *     end: varint 0, varint ticks since the last change
+ *   A game without an end (the program stopped during it) ends at its last change
+ */
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class ReplayRecorder implements Closeable {
+    static final byte[] MAGIC = {'S', 'N', 'K', 'R'};
+    static final byte VERSION = 1;
+    static final byte BUILT_IN_LEVEL = 0;
+    static final byte FILE_LEVEL = 1;
+    static final byte GAME = 1;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+    private boolean inGame = false;
+    private Direction lastDirection;
+    private long lastChangeTick;
+    private long lastTick;
+
+    /**
+     * Creates a new replay file (replacing any existing one) and writes the level of game into it
+     * Games are only recorded after game.setRecorder(this) is called
+     * @param file path of the replay file
+     * @param game GameManager whose level is recorded
+     */
+    public ReplayRecorder(Path file, GameManager game) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        if (game.getLevelFile() == null) {
+            buffer.put(BUILT_IN_LEVEL);
+            putVarint(game.getMapChoice());
+        } else {
+            byte[] path = game.getLevelFile().getBytes(StandardCharsets.UTF_8);
+            buffer.put(FILE_LEVEL);
+            putVarint(path.length);
+            ensureRoom(path.length);
+            buffer.put(path);
+        }
+    }
+
+    /**
+     * Starts recording a new game, ending the current one if there is one
+     * Called by GameManager when recording starts and on every newGame
+     * @param seed seed of the new game
+     */
+    public synchronized void startGame(long seed) {
+        if (inGame) {
+            endGame();
+        }
+        ensureRoom(1 + Long.BYTES);
+        buffer.put(GAME);
+        buffer.putLong(seed);
+        inGame = true;
+        lastDirection = Direction.LEFT;
+        lastChangeTick = 0;
+        lastTick = 0;
+    }
+
+    /**
+     * Records the Direction of a move, only written if it is different from the Direction of the move before
+     * Called by GameManager on every move
+     * @param tick number of the move in the current game, starting at 1
+     * @param direction Direction of the move
+     */
+    public synchronized void record(long tick, Direction direction) {
+        lastTick = tick;
+        if (inGame && direction != lastDirection) {
+            putVarint(tick - lastChangeTick);
+            ensureRoom(1);
+            buffer.put((byte) direction.ordinal());
+            lastDirection = direction;
+            lastChangeTick = tick;
+        }
+    }
+
+    /**
+     * Ends the current game at its last recorded move and flushes the file
+     */
+    public synchronized void endGame() {
+        if (inGame) {
+            putVarint(0);
+            putVarint(lastTick - lastChangeTick);
+            inGame = false;
+        }
+        flush();
+    }
+
+    /**
+     * Ends the current game and closes the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            endGame();
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint, 7 bits per byte with the high bit set on every byte but the last
+     * @param value value to write, must not be negative
+     */
+    private void putVarint(long value) {
+        ensureRoom(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Flushes the buffer if it has less than bytes left
+     */
+    private void ensureRoom(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes everything in the buffer to the file
+     */
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -1,11 +1,22 @@
 import java.io.IOException;
+import java.nio.file.Path;
 
 /**
  * SnakeGame.java
  * Runs SnakeGame, initiates MainGame.java
+ * With --terminal, plays in the text terminal with TerminalGame.java instead
+ * With --jfr, starts a Flight Recorder recording first (see GameEvents.java)
  */
 public class RunSnake {
     public static void main(String[] args) throws IOException {
-        MainGame snake = new MainGame(args);
+        GameOptions options = GameOptions.parse(args);
+        if (options.getJfrFile() != null) {
+            GameEvents.startRecording(Path.of(options.getJfrFile()));
+        }
+        if (options.isTerminal()) {
+            TerminalGame.run(options);
+            System.exit(0);
+        }
+        MainGame snake = new MainGame(options);
     }
 }
@@ -0,0 +1,559 @@
+/**
+ * SnakeBenchmark.java
+ * Benchmarks the GameManager and rendering hot paths (move, spawnApple, newGame, toString, fillBoard, paint)
+ * and reading level files (text and compiled)
+ * Every case is run over the built-in levels and generated levels up to 4096x4096 (open boxes and grids of posts),
+ * and on the open levels over different snake lengths (fill ratio of the play area)
+ * Reports ns/op, ops/s (ticks/sec for the tick case), allocated bytes/op, allocation rate and GC count
+ * Run with 'java SnakeBenchmark [-quick] [case ...]',
+ * cases: tick, publishTick, spawnApple, newGame, toString, fillBoard, paintFrame, paintTick, terminalTick, loadLevel
+ */
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SnakeBenchmark {
+    private static final String[] ALL_CASES = {"tick", "publishTick", "spawnApple", "newGame", "toString", "fillBoard",
+            "paintFrame", "paintTick", "terminalTick", "loadLevel"};
+    private static final int[] GENERATED_SIZES = {256, 1024, 4096};
+    private static final double[] FILL_RATIOS = {0.0, 0.5, 0.9, 0.99};
+    private static final int PANEL_SIZE = 800;
+    private static final int MERGED_AREA_PER_CELL = 4;
+
+    private static long iterationNanos = 1_000_000_000L;
+    private static int warmupIterations = 2;
+    private static int iterations = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static volatile long sink;
+
+    /**
+     * A level to benchmark
+     * @param name name printed in the results
+     * @param args command line args passed to GameManager
+     * @param mapChoice built-in level choice passed to GameManager
+     * @param open true if the level is a box without obstacles, so CyclePolicy can fill it
+     */
+    private record BenchLevel(String name, String[] args, int mapChoice, boolean open) {
+        GameManager newGame() throws IOException {
+            return new GameManager(args, mapChoice);
+        }
+    }
+
+    /**
+     * An operation to be measured, run count times in a row
+     */
+    @FunctionalInterface
+    private interface Op {
+        void run(int count);
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> cases = new ArrayList<>();
+        boolean quick = false;
+        for (String arg : args) {
+            if (arg.equals("-quick")) {
+                quick = true;
+            } else {
+                cases.add(arg);
+            }
+        }
+        if (cases.isEmpty()) {
+            cases.addAll(Arrays.asList(ALL_CASES));
+        }
+        if (quick) {
+            iterationNanos = 200_000_000L;
+            warmupIterations = 1;
+            iterations = 3;
+        }
+
+        List<BenchLevel> levels = new ArrayList<>();
+        levels.add(new BenchLevel("default 40x40", new String[0], 0, true));
+        levels.add(new BenchLevel("zigzag 71x45", new String[0], 1, false));
+        levels.add(new BenchLevel("cross 60x60", new String[0], 2, false));
+        for (int size : GENERATED_SIZES) {
+            if (!quick || size <= 1024) {
+                levels.add(new BenchLevel("box " + size + "x" + size, new String[]{generateLevel(size)}, 0, true));
+                levels.add(new BenchLevel("grid " + size + "x" + size, new String[]{generateGridLevel(size)}, 0,
+                        false));
+            }
+        }
+
+        System.out.printf("%-10s %-16s %5s %14s %14s %10s %10s %5s%n",
+                "case", "level", "fill", "ns/op", "ops/s", "B/op", "MB/s", "gc");
+        for (String name : cases) {
+            for (BenchLevel level : levels) {
+                switch (name) {
+                    case "tick" -> benchTick(level);
+                    case "publishTick" -> benchPublishTick(level);
+                    case "spawnApple" -> benchSpawnApple(level);
+                    case "newGame" -> benchNewGame(level);
+                    case "toString" -> benchToString(level);
+                    case "fillBoard" -> benchFillBoard(level);
+                    case "paintFrame" -> benchPaintFrame(level);
+                    case "paintTick" -> benchPaintTick(level);
+                    case "terminalTick" -> benchTerminalTick(level);
+                    case "loadLevel" -> benchLoadLevel(level);
+                    default -> throw new IllegalArgumentException("unknown case " + name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures GameManager.move through SnakeEngine.step, resets are included if the snake dies
+     * maxLen is pinned after every tick, so eating apples does not change the snake length being measured
+     */
+    private static void benchTick(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            SnakeEngine engine = new SnakeEngine(game);
+            Policy policy = level.open() ? new CyclePolicy() : new SurvivalPolicy();
+            int length = grow(game, fill);
+            measure("tick", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    if (engine.step(policy.nextMove(game)) == TickResult.COLLISION) {
+                        engine.reset();
+                        grow(game, fill);
+                    }
+                    game.setMaxLen(length);
+                }
+            });
+        }
+    }
+
+    /**
+     * Measures a tick published to a BoardPublisher followed by reading the frame, like a reader on another thread
+     * would, the difference to the tick case is the cost of publishing and reading
+     */
+    private static void benchPublishTick(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            SnakeEngine engine = new SnakeEngine(game);
+            Policy policy = level.open() ? new CyclePolicy() : new SurvivalPolicy();
+            int length = grow(game, fill);
+            BoardPublisher publisher = game.getPublisher();
+            BoardPublisher.Frame frame = publisher.newFrame();
+            measure("publishTick", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    if (engine.step(policy.nextMove(game)) == TickResult.COLLISION) {
+                        engine.reset();
+                        grow(game, fill);
+                    }
+                    game.setMaxLen(length);
+                    publisher.read(frame);
+                }
+                sink += frame.getTick();
+            });
+        }
+    }
+
+    /**
+     * Measures spawnApple on a board that does not change
+     */
+    private static void benchSpawnApple(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            grow(game, fill);
+            measure("spawnApple", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    game.respawnApple();
+                }
+            });
+        }
+    }
+
+    /**
+     * Measures resetting a game with newGame
+     */
+    private static void benchNewGame(BenchLevel level) throws IOException {
+        GameManager game = level.newGame();
+        measure("newGame", level, 0, count -> {
+            for (int i = 0; i < count; i++) {
+                game.newGame();
+            }
+        });
+    }
+
+    /**
+     * Measures building the String representation of the board
+     */
+    private static void benchToString(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            grow(game, fill);
+            measure("toString", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    sink += game.toString().length();
+                }
+            });
+        }
+    }
+
+    /**
+     * Measures painting the whole board into an image the size of the MainGamePanel
+     */
+    private static void benchFillBoard(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            grow(game, fill);
+            int cellSize = Math.max(1, PANEL_SIZE / Math.max(game.getMaxCol(), game.getMaxRow()));
+            BoardPainter painter = new BoardPainter(cellSize);
+            BufferedImage image = new BufferedImage(game.getMaxCol() * cellSize, game.getMaxRow() * cellSize,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            measure("fillBoard", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    painter.fillBoard(graphics, game.getBoard());
+                }
+            });
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Measures a tick followed by drawing it with a TerminalRenderer on an 80x24 terminal, like --terminal does
+     * Also prints how many bytes were sent to the terminal per tick
+     */
+    private static void benchTerminalTick(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            SnakeEngine engine = new SnakeEngine(game);
+            Policy policy = level.open() ? new CyclePolicy() : new SurvivalPolicy();
+            int length = grow(game, fill);
+            TerminalRenderer renderer = new TerminalRenderer(OutputStream.nullOutputStream(), 24, 80);
+            long[] ticks = {0};
+            measure("terminalTick", level, fill, count -> {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        if (engine.step(policy.nextMove(game)) == TickResult.COLLISION) {
+                            engine.reset();
+                            grow(game, fill);
+                        }
+                        game.setMaxLen(length);
+                        renderer.render(game);
+                    }
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                ticks[0] += count;
+            });
+            System.out.printf("%-10s %-16s %5.2f %14.1f terminal bytes/tick%n", "", level.name(), fill,
+                    (double) renderer.getBytesWritten() / ticks[0]);
+        }
+    }
+
+    /**
+     * Measures painting a whole frame like MainGamePanel does, the static layer plus the snake and apple
+     */
+    private static void benchPaintFrame(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            grow(game, fill);
+            int cellSize = Math.max(1, PANEL_SIZE / Math.max(game.getMaxCol(), game.getMaxRow()));
+            BoardPainter painter = new BoardPainter(cellSize);
+            BufferedImage image = new BufferedImage(game.getMaxCol() * cellSize, game.getMaxRow() * cellSize,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            measure("paintFrame", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    painter.paint(graphics, game, null);
+                }
+            });
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Measures a tick followed by painting only the cells it changed, like MainGamePanel does:
+     * in one paint clipped to the rectangle around them if it is small enough, otherwise one paint per cell
+     */
+    private static void benchPaintTick(BenchLevel level) throws IOException {
+        for (double fill : fillRatios(level)) {
+            GameManager game = level.newGame();
+            SnakeEngine engine = new SnakeEngine(game);
+            Policy policy = level.open() ? new CyclePolicy() : new SurvivalPolicy();
+            int length = grow(game, fill);
+            int cellSize = Math.max(1, PANEL_SIZE / Math.max(game.getMaxCol(), game.getMaxRow()));
+            BoardPainter painter = new BoardPainter(cellSize);
+            BufferedImage image = new BufferedImage(game.getMaxCol() * cellSize, game.getMaxRow() * cellSize,
+                    BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = image.createGraphics();
+            measure("paintTick", level, fill, count -> {
+                for (int i = 0; i < count; i++) {
+                    if (engine.step(policy.nextMove(game)) == TickResult.COLLISION) {
+                        engine.reset();
+                        grow(game, fill);
+                    }
+                    game.setMaxLen(length);
+                    ChangedCells changedCells = game.getChangedCells();
+                    if (changedCells.isAll()) {
+                        graphics.setClip(null);
+                        painter.paint(graphics, game, null);
+                    } else {
+                        paintChangedCells(graphics, painter, game, changedCells, cellSize);
+                    }
+                }
+            });
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Paints the changed cells like MainGamePanel.paintDirtyCells, together if the rectangle around them is at most
+     * MERGED_AREA_PER_CELL cells per cell, else one by one
+     */
+    private static void paintChangedCells(Graphics2D graphics, BoardPainter painter, GameManager game,
+                                          ChangedCells changedCells, int cellSize) {
+        int maxCol = game.getMaxCol();
+        int top = Integer.MAX_VALUE;
+        int left = Integer.MAX_VALUE;
+        int bottom = -1;
+        int right = -1;
+        for (int j = 0; j < changedCells.size(); j++) {
+            int cell = changedCells.get(j);
+            top = Math.min(top, cell / maxCol);
+            left = Math.min(left, cell % maxCol);
+            bottom = Math.max(bottom, cell / maxCol);
+            right = Math.max(right, cell % maxCol);
+        }
+        if (bottom < 0) {
+            return;
+        }
+        if ((long) (bottom - top + 1) * (right - left + 1) <= (long) changedCells.size() * MERGED_AREA_PER_CELL) {
+            graphics.setClip(left * cellSize, top * cellSize, (right - left + 1) * cellSize,
+                    (bottom - top + 1) * cellSize);
+            painter.paint(graphics, game, null);
+            return;
+        }
+        for (int j = 0; j < changedCells.size(); j++) {
+            int cell = changedCells.get(j);
+            graphics.setClip(cell % maxCol * cellSize, cell / maxCol * cellSize, cellSize, cellSize);
+            painter.paint(graphics, game, null);
+        }
+    }
+
+    /**
+     * Measures reading a level file as text and as a compiled level file, skipping LevelCache
+     * Only levels read from a file are measured
+     */
+    private static void benchLoadLevel(BenchLevel level) throws IOException {
+        if (level.args().length == 0) {
+            return;
+        }
+        File text = new File(level.args()[0]);
+        File compiled = File.createTempFile("snake-level-", ".snkl");
+        compiled.deleteOnExit();
+        Level.readText(text).write(compiled);
+        measure("loadText", level, 0, count -> {
+            for (int i = 0; i < count; i++) {
+                sink += load(text, false).getCols();
+            }
+        });
+        measure("loadBinary", level, 0, count -> {
+            for (int i = 0; i < count; i++) {
+                sink += load(compiled, true).getCols();
+            }
+        });
+    }
+
+    private static Level load(File file, boolean compiled) {
+        try {
+            return compiled ? Level.read(file) : Level.readText(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Runs op in batches for warmupIterations + iterations, each iteration lasting iterationNanos,
+     * and prints the averages of the measured iterations
+     */
+    private static void measure(String name, BenchLevel level, double fill, Op op) {
+        int batch = 1;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < iterationNanos / 100) {
+            op.run(batch);
+            batch *= 2;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(op, batch);
+        }
+
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcs = gcCount();
+        for (int i = 0; i < iterations; i++) {
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long nanosBefore = System.nanoTime();
+            ops += runIteration(op, batch);
+            nanos += System.nanoTime() - nanosBefore;
+            bytes += THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+        }
+        gcs = gcCount() - gcs;
+
+        double nsPerOp = (double) nanos / ops;
+        System.out.printf("%-10s %-16s %5.2f %14.1f %14.0f %10.1f %10.1f %5d%n",
+                name, level.name(), fill, nsPerOp, 1e9 / nsPerOp, (double) bytes / ops,
+                bytes / 1e6 / (nanos / 1e9), gcs);
+    }
+
+    /**
+     * Runs op in batches until iterationNanos have passed
+     * @return number of operations run
+     */
+    private static long runIteration(Op op, int batch) {
+        long ops = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < iterationNanos) {
+            op.run(batch);
+            ops += batch;
+        }
+        return ops;
+    }
+
+    /**
+     * @return total number of collections of all garbage collectors
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * @return fill ratios to benchmark, only open levels can be filled
+     */
+    private static double[] fillRatios(BenchLevel level) {
+        return level.open() ? FILL_RATIOS : new double[]{0.0};
+    }
+
+    /**
+     * Grows the snake until it covers fill of the play area inside the border walls
+     * Uses CyclePolicy, so it only works on open levels
+     * @return the length the snake was grown to
+     */
+    private static int grow(GameManager game, double fill) {
+        int target = Math.max(5, (int) (fill * (game.getMaxRow() - 2) * (game.getMaxCol() - 2)));
+        if (target <= 5) {
+            return 5;
+        }
+        game.setMaxLen(target);
+        SnakeEngine engine = new SnakeEngine(game);
+        Policy policy = new CyclePolicy();
+        while (game.getSnakeLength() < target && !game.isCollision()) {
+            engine.step(policy.nextMove(game));
+        }
+        return target;
+    }
+
+    /**
+     * Writes a size x size level file that only has walls around the border
+     * @return path of the level file
+     */
+    private static String generateLevel(int size) throws IOException {
+        File level = File.createTempFile("snake-box-" + size + "-", ".txt");
+        level.deleteOnExit();
+        int last = size - 1;
+        try (PrintWriter output = new PrintWriter(new FileWriter(level))) {
+            output.println(size + " " + size);
+            output.println("0 " + last + " 0 0");
+            output.println("0 " + last + " " + last + " " + last);
+            output.println("0 0 0 " + last);
+            output.println(last + " " + last + " 0 " + last);
+        }
+        return level.getPath();
+    }
+
+    /**
+     * Writes a size x size level file with walls around the border and a single WALL piece every 8 cells inside,
+     * so it has many walls to read
+     * @return path of the level file
+     */
+    private static String generateGridLevel(int size) throws IOException {
+        File level = File.createTempFile("snake-grid-" + size + "-", ".txt");
+        level.deleteOnExit();
+        int last = size - 1;
+        try (PrintWriter output = new PrintWriter(new FileWriter(level))) {
+            output.println(size + " " + size);
+            output.println("0 " + last + " 0 0");
+            output.println("0 " + last + " " + last + " " + last);
+            output.println("0 0 0 " + last);
+            output.println(last + " " + last + " 0 " + last);
+            for (int row = 8; row < last; row += 8) {
+                for (int col = 8; col < last; col += 8) {
+                    output.println(col + " " + col + " " + row + " " + row);
+                }
+            }
+        }
+        return level.getPath();
+    }
+
+    /**
+     * Moves the snake along a cycle that visits every cell inside the border walls,
+     * column 0 is used to go back up, the other columns are swept row by row.
+     * The snake never hits itself as long as it is shorter than the cycle.
+     * Needs an even number of rows inside the border walls.
+     */
+    private static class CyclePolicy implements Policy {
+        @Override
+        public Direction nextMove(GameManager game) {
+            int row = game.getHeadRow() - 1;
+            int col = game.getHeadCol() - 1;
+            int height = game.getMaxRow() - 2;
+            int width = game.getMaxCol() - 2;
+
+            if (col == 0) {
+                return row == 0 ? Direction.RIGHT : Direction.UP;
+            } else if (row % 2 == 0) {
+                return col < width - 1 ? Direction.RIGHT : Direction.DOWN;
+            } else if (col > 1) {
+                return Direction.LEFT;
+            }
+            return row == height - 1 ? Direction.LEFT : Direction.DOWN;
+        }
+    }
+
+    /**
+     * Keeps moving in the same direction and turns when the next piece is a WALL or SNAKE
+     */
+    private static class SurvivalPolicy implements Policy {
+        private Direction heading = Direction.LEFT;
+
+        @Override
+        public Direction nextMove(GameManager game) {
+            Board board = game.getBoard();
+            if (isFree(board, game, heading)) {
+                return heading;
+            }
+            for (Direction direction : Direction.values()) {
+                if (direction != heading.opposite() && isFree(board, game, direction)) {
+                    heading = direction;
+                    return heading;
+                }
+            }
+            return heading;
+        }
+
+        private boolean isFree(Board board, GameManager game, Direction direction) {
+            GamePieces piece = board.get(game.getHeadRow() + direction.getChangeRow(),
+                    game.getHeadCol() + direction.getChangeCol());
+            return piece != GamePieces.WALL && piece != GamePieces.SNAKE;
+        }
+    }
+}
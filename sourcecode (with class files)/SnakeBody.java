@@ -0,0 +1,102 @@
+/**
+ * SnakeBody.java
+ * Contains every SNAKE piece of the snake, in order from head to tail
+ * Each piece is stored as a single int cell (row * maxCol + col) in a ring buffer,
+ * so moving the snake (pushHead and popTail) allocates nothing.
+ * The buffer only grows when the snake gets longer than it has ever been
+ */
+public class SnakeBody {
+    private int[] cells;
+    private int mask;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Creates a new, empty SnakeBody
+     * @param capacity number of pieces the body can hold before it has to grow
+     */
+    SnakeBody(int capacity) {
+        this.cells = new int[ringSize(capacity)];
+        this.mask = cells.length - 1;
+    }
+
+    /**
+     * Makes sure the body can hold capacity pieces without growing again
+     * @param capacity number of pieces the body must be able to hold, usually maxLen
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > cells.length) {
+            int[] grown = new int[ringSize(capacity)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = get(i);
+            }
+            cells = grown;
+            mask = grown.length - 1;
+            head = 0;
+        }
+    }
+
+    /**
+     * Adds a new head in front of the current head
+     * @param cell cell of the new head
+     */
+    public void pushHead(int cell) {
+        ensureCapacity(size + 1);
+        head = (head - 1) & mask;
+        cells[head] = cell;
+        size++;
+    }
+
+    /**
+     * Removes the tail
+     * @return cell of the removed tail
+     */
+    public int popTail() {
+        size--;
+        return cells[(head + size) & mask];
+    }
+
+    /**
+     * @return cell of the head
+     */
+    public int head() {
+        return cells[head];
+    }
+
+    /**
+     * @return cell of the tail
+     */
+    public int tail() {
+        return cells[(head + size - 1) & mask];
+    }
+
+    /**
+     * @param index position in the body, 0 is the head and size - 1 is the tail
+     * @return cell at that position
+     */
+    public int get(int index) {
+        return cells[(head + index) & mask];
+    }
+
+    /**
+     * @return number of pieces in the body
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every piece, the capacity is kept
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * @return smallest power of two that is at least capacity, so positions can wrap with a mask
+     */
+    private static int ringSize(int capacity) {
+        return Math.max(8, Integer.highestOneBit(Math.max(1, capacity - 1)) << 1);
+    }
+}
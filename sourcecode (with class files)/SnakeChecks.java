@@ -0,0 +1,263 @@
+/**
+ * SnakeChecks.java
+ * Self-checks for the parts of the game that have to play out exactly the same or be read from other threads,
+ * each check plays headless games and throws an AssertionError on the first difference it finds
+ * Run with 'java SnakeChecks [check ...]', checks: replay, publisher, edge
+ */
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SnakeChecks {
+    private static final String[] ALL_CHECKS = {"replay", "publisher", "edge"};
+    private static final int[] MAP_CHOICES = {0, 1, 2};
+    private static final int PUBLISHER_BOX_SIZE = 130;
+    private static final int PUBLISHER_GAMES = 40;
+    private static final int PUBLISHER_TICKS = 600;
+    private static final int OPEN_COLS = 12;
+    private static final int OPEN_ROWS = 9;
+
+    public static void main(String[] args) throws Exception {
+        List<String> checks = new ArrayList<>(Arrays.asList(args));
+        if (checks.isEmpty()) {
+            checks.addAll(Arrays.asList(ALL_CHECKS));
+        }
+        for (String name : checks) {
+            long start = System.nanoTime();
+            switch (name) {
+                case "replay" -> checkReplay();
+                case "publisher" -> checkPublisher();
+                case "edge" -> checkEdge();
+                default -> throw new IllegalArgumentException("unknown check " + name);
+            }
+            System.out.printf("%-10s ok %8.1f ms%n", name, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    /**
+     * Records several games in a row on the same GameManager with greedyMove, so later games start right after games
+     * with a high score and speed, then plays every game back on a new engine with ReplayPlayer
+     * Every game has to end at the same tick with the same score and board
+     */
+    private static void checkReplay() throws IOException {
+        for (int mapChoice : MAP_CHOICES) {
+            Path file = Files.createTempFile("snake-check-", ".snkr");
+            try {
+                List<String> boards = new ArrayList<>();
+                List<Integer> scores = new ArrayList<>();
+                GameManager game = new GameManager(new String[0], mapChoice, 42 + mapChoice);
+                try (ReplayRecorder recorder = new ReplayRecorder(file, game)) {
+                    game.setRecorder(recorder);
+                    SnakeEngine engine = new SnakeEngine(game);
+                    for (int i = 0; i < 6; i++) {
+                        if (i != 0) {
+                            engine.reset();
+                        }
+                        engine.run(3000, SnakeChecks::greedyMove);
+                        boards.add(game.toString());
+                        scores.add(game.getScore());
+                    }
+                }
+
+                ReplayPlayer player = ReplayPlayer.read(file);
+                check(player.getGameCount() == boards.size(),
+                        "map " + mapChoice + ": " + player.getGameCount() + " games replayed, " + boards.size()
+                                + " recorded");
+                for (int i = 0; i < player.getGameCount(); i++) {
+                    SnakeEngine engine = player.newEngine();
+                    player.seek(engine, i, player.getTickCount(i));
+                    GameManager replayed = engine.getGame();
+                    String where = "map " + mapChoice + " game " + i;
+                    check(replayed.getScore() == scores.get(i),
+                            where + ": recorded score " + scores.get(i) + ", replayed score " + replayed.getScore());
+                    check(engine.getTick() == player.getTickCount(i),
+                            where + ": replay stopped at tick " + engine.getTick() + " of " + player.getTickCount(i));
+                    check(replayed.toString().equals(boards.get(i)), where + ": boards differ at the end");
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Plays games on one thread while another thread reads every frame it can from the BoardPublisher, then plays the
+     * same games again on one thread and checks every frame that was read against the board of the game after the
+     * same number of publishes
+     * The games are played with greedyMove, which is cheap, so publishes come fast and many games start over.
+     * The box is bigger than a chunk of the Board, so reads copy some chunks and share the others
+     * A read can only be torn when both threads run at the same time, so this check needs more than one CPU
+     */
+    private static void checkPublisher() throws Exception {
+        Path box = Files.createTempFile("snake-check-box-", ".txt");
+        try {
+            writeBox(box, PUBLISHER_BOX_SIZE);
+            List<String[]> levels = new ArrayList<>();
+            levels.add(new String[]{box.toString()});
+            levels.add(new String[0]);
+            for (String[] args : levels) {
+                GameManager game = new GameManager(args, 1, 7);
+                BoardPublisher publisher = game.getPublisher();
+                List<long[]> frames = new ArrayList<>();
+                Thread reader = new Thread(() -> {
+                    BoardPublisher.Frame frame = publisher.newFrame();
+                    while (!Thread.currentThread().isInterrupted()) {
+                        if (publisher.read(frame)) {
+                            frames.add(describe(frame.getPublishCount(), frame.getBoard(), frame.getTick(),
+                                    frame.getScore(), frame.getHead(), frame.isCollision()));
+                        }
+                    }
+                }, "check-reader");
+                reader.start();
+                playPublisherGames(game, () -> { });
+                reader.interrupt();
+                reader.join();
+
+                Map<Long, long[]> expected = new HashMap<>();
+                GameManager replayed = new GameManager(args, 1, 7);
+                BoardPublisher replayedPublisher = replayed.getPublisher();
+                BoardPublisher.Frame published = replayedPublisher.newFrame();
+                Runnable expect = () -> {
+                    replayedPublisher.read(published);
+                    expected.put(published.getPublishCount(), describe(published.getPublishCount(), replayed.getBoard(),
+                            replayed.getTick(), replayed.getScore(),
+                            replayed.getSnakeLength() == 0 ? -1 : replayed.getSnakeBody().head(),
+                            replayed.isCollision()));
+                };
+                expect.run();
+                playPublisherGames(replayed, expect);
+
+                String level = args.length == 0 ? "map 1" : "box " + PUBLISHER_BOX_SIZE;
+                check(frames.size() > 1, level + ": only " + frames.size() + " frames read");
+                for (long[] frame : frames) {
+                    long[] board = expected.get(frame[0]);
+                    check(board != null, level + ": frame of publish " + frame[0] + " was never published");
+                    check(Arrays.equals(frame, board), level + ": frame of publish " + frame[0] + " (tick " + frame[2]
+                            + ") differs from the board of its tick");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(box);
+        }
+    }
+
+    /**
+     * Plays the games of checkPublisher, with the same seeds every time
+     * @param published called after every tick and new game, once it was published
+     */
+    private static void playPublisherGames(GameManager game, Runnable published) {
+        SnakeEngine engine = new SnakeEngine(game);
+        Policy policy = SnakeChecks::greedyMove;
+        for (int i = 0; i < PUBLISHER_GAMES; i++) {
+            if (i != 0) {
+                engine.reset(1000 + i);
+                published.run();
+            }
+            for (int tick = 0; tick < PUBLISHER_TICKS && !game.isCollision(); tick++) {
+                engine.step(policy.nextMove(game));
+                published.run();
+            }
+        }
+    }
+
+    /**
+     * @return Direction that brings the head closest to the APPLE without running into a WALL or the snake,
+     * the heading if there is none
+     */
+    private static Direction greedyMove(GameManager game) {
+        Direction best = game.getHeading();
+        int bestDistance = Integer.MAX_VALUE;
+        for (Direction direction : Direction.values()) {
+            int row = game.getHeadRow() + direction.getChangeRow();
+            int col = game.getHeadCol() + direction.getChangeCol();
+            if (direction == game.getHeading().opposite() || game.getLevel().isWall(row, col)
+                    || game.getBoard().get(row, col) == GamePieces.SNAKE) {
+                continue;
+            }
+            int distance = Math.abs(row - game.getAppleRow()) + Math.abs(col - game.getAppleCol());
+            if (distance < bestDistance) {
+                best = direction;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return what a frame holds: publish count, a hash of the board, tick, score, head, and collision
+     */
+    private static long[] describe(long publishCount, Board board, long tick, int score, int head, boolean collision) {
+        long hash = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            hash = hash * 31 + board.get(cell).ordinal();
+        }
+        return new long[]{publishCount, hash, tick, score, head, collision ? 1 : 0};
+    }
+
+    /**
+     * Drives the snake straight off every edge of a level without walls, from many places on the board
+     * Every move has to take the head exactly one cell in its direction, and the move off the edge has to end the
+     * game as a WALL hit with the head still on the board, not wrap the head onto another row or column
+     */
+    private static void checkEdge() throws IOException {
+        Path open = Files.createTempFile("snake-check-open-", ".txt");
+        try {
+            Files.writeString(open, OPEN_COLS + " " + OPEN_ROWS + System.lineSeparator());
+            GameManager game = new GameManager(new String[]{open.toString()}, 0, 5);
+            SnakeEngine engine = new SnakeEngine(game);
+            for (Direction direction : Direction.values()) {
+                for (int seed = 0; seed < 20; seed++) {
+                    engine.reset(seed);
+                    String where = direction + " seed " + seed;
+                    int ticks = 0;
+                    while (!game.isCollision()) {
+                        check(ticks++ <= Math.max(OPEN_COLS, OPEN_ROWS), where + ": the snake never left the board");
+                        int row = game.getHeadRow();
+                        int col = game.getHeadCol();
+                        engine.step(direction);
+                        if (!game.isCollision()) {
+                            check(game.getHeadRow() == row + direction.getChangeRow()
+                                            && game.getHeadCol() == col + direction.getChangeCol(),
+                                    where + ": the head jumped from " + row + "," + col + " to "
+                                            + game.getHeadRow() + "," + game.getHeadCol());
+                        }
+                    }
+                    int row = game.getHeadRow();
+                    int col = game.getHeadCol();
+                    check(row + direction.getChangeRow() < 0 || row + direction.getChangeRow() >= OPEN_ROWS
+                                    || col + direction.getChangeCol() < 0 || col + direction.getChangeCol() >= OPEN_COLS,
+                            where + ": the snake collided at " + row + "," + col + ", not at the edge");
+                    check(game.getBoard().get(row, col) == GamePieces.SNAKE, where + ": the head left the board");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(open);
+        }
+    }
+
+    /**
+     * Writes a size x size level file that only has walls around the border
+     */
+    private static void writeBox(Path file, int size) throws IOException {
+        int last = size - 1;
+        try (PrintWriter output = new PrintWriter(Files.newBufferedWriter(file))) {
+            output.println(size + " " + size);
+            output.println("0 " + last + " 0 0");
+            output.println("0 " + last + " " + last + " " + last);
+            output.println("0 0 0 " + last);
+            output.println(last + " " + last + " 0 " + last);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
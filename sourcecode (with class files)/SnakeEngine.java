@@ -0,0 +1,93 @@
+/**
+ * SnakeEngine.java
+ * Headless driver for GameManager, advances the game as fast as the CPU allows
+ * Does not use Swing, AWT, or a Timer, so it can run without a display (CI, batch jobs, replays)
+ */
+import java.io.IOException;
+
+public class SnakeEngine {
+    private final GameManager game;
+
+    /**
+     * Creates a new SnakeEngine around a new GameManager
+     * @param args command line args, if a level file is specified it is used
+     * @param mapChoice integer that decides what built-in level to use if there is no level file
+     */
+    public SnakeEngine(String[] args, int mapChoice) throws IOException {
+        this(new GameManager(args, mapChoice));
+    }
+
+    /**
+     * Creates a new SnakeEngine around an existing GameManager
+     * @param game GameManager to drive
+     */
+    public SnakeEngine(GameManager game) {
+        this.game = game;
+    }
+
+    /**
+     * Advances the game by one tick, moving the snake in the given direction
+     * Once a collision has happened, the game no longer changes and COLLISION is returned until reset is called
+     * @param direction Direction the snake moves in
+     * @return TickResult of this tick
+     */
+    public TickResult step(Direction direction) {
+        if (game.isCollision()) {
+            return TickResult.COLLISION;
+        }
+        int scoreBefore = game.getScore();
+        game.move(direction);
+
+        if (game.isCollision()) {
+            return TickResult.COLLISION;
+        } else if (game.getScore() != scoreBefore) {
+            return TickResult.ATE_APPLE;
+        }
+        return TickResult.MOVED;
+    }
+
+    /**
+     * Runs up to the given number of ticks, asking policy for a direction on each tick
+     * Stops early if the snake collides
+     * @param ticks maximum number of ticks to run
+     * @param policy Policy that chooses the direction of each tick
+     * @return number of ticks that were run
+     */
+    public long run(long ticks, Policy policy) {
+        long ran = 0;
+        while (ran < ticks && !game.isCollision()) {
+            step(policy.nextMove(game));
+            ran++;
+        }
+        return ran;
+    }
+
+    /**
+     * Starts a new game on the same level, the tick counter is reset to 0
+     */
+    public void reset() {
+        game.newGame();
+    }
+
+    /**
+     * Starts a new game on the same level with the given seed, the tick counter is reset to 0
+     * @param seed seed of the new game
+     */
+    public void reset(long seed) {
+        game.newGame(seed);
+    }
+
+    /**
+     * @return number of ticks run since the last reset
+     */
+    public long getTick() {
+        return game.getTick();
+    }
+
+    /**
+     * @return the GameManager driven by this engine
+     */
+    public GameManager getGame() {
+        return game;
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * TerminalGame.java
+ * Plays Snake in a text terminal for --terminal, so it runs on machines without a display and over SSH
+ * The game is ticked on the main thread every (100 - speed) milliseconds like MainGame, and drawn by a TerminalRenderer
+ * A daemon thread reads the keys: the arrow keys (or WASD) steer, SPACE pauses, Q quits
+ * The terminal is switched to unbuffered input without echo through stty, and put back when the game ends
+ * With --autopilot it is a watch mode, the Autopilot plays and a new game starts on its own after game over
+ * With --connect, the game runs on a GameServer and only the frames it sends are drawn
+ * With --metrics, GameMetrics are recorded like in MainGame, the time of a render counts as the paint time,
+ * and every render makes a GameEvents.Paint for Flight Recorder
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TerminalGame {
+    private static final int DELAY = 100;
+    private static final int FRAME_MILLIS = 16;
+    private static final char PAUSE = ' ';
+    private static final char QUIT = 'q';
+
+    private final GameOptions options;
+    private final InputQueue inputQueue = new InputQueue(8);
+    private final BlockingQueue<Character> commands = new LinkedBlockingQueue<>();
+    private final TerminalRenderer renderer;
+    private final String savedTerminal;
+    private boolean restored = false;
+
+    private TerminalGame(GameOptions options) {
+        this.options = options;
+        this.savedTerminal = stty("-g");
+        int rows = 24;
+        int cols = 80;
+        String size = stty("size");
+        if (size != null && size.matches("\\d+ \\d+")) {
+            rows = Integer.parseInt(size.substring(0, size.indexOf(' ')));
+            cols = Integer.parseInt(size.substring(size.indexOf(' ') + 1));
+        }
+        this.renderer = new TerminalRenderer(System.out, rows, cols);
+    }
+
+    /**
+     * Plays in the terminal until Q is pressed, or until game over if no new game is wanted
+     * @param options command line options, --fixed-step has no effect in the terminal
+     */
+    public static void run(GameOptions options) throws IOException {
+        TerminalGame terminalGame = new TerminalGame(options);
+        Thread restore = new Thread(terminalGame::restoreTerminal);
+        Runtime.getRuntime().addShutdownHook(restore);
+        try {
+            terminalGame.stty("-icanon -echo min 1");
+            terminalGame.renderer.start();
+            if (options.getConnectHost() != null) {
+                terminalGame.playOnServer();
+            } else {
+                terminalGame.play();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            terminalGame.restoreTerminal();
+            Runtime.getRuntime().removeShutdownHook(restore);
+        }
+    }
+
+    /**
+     * Runs the game here, on the main thread
+     */
+    private void play() throws IOException, InterruptedException {
+        GameManager game = new GameManager(options.getLevelArgs(), 0);
+        ReplayRecorder recorder = null;
+        if (options.getRecordFile() != null) {
+            recorder = new ReplayRecorder(Path.of(options.getRecordFile()), game);
+            game.setRecorder(recorder);
+        }
+        GameMetrics metrics = options.isMetrics() ? GameMetrics.register() : null;
+        game.setMetrics(metrics);
+        Policy input = options.isAutopilot() ? new Autopilot() : g -> inputQueue.nextTurn(g.getHeading());
+        startKeyReader(inputQueue::offer);
+
+        try {
+            renderer.render(game);
+            long nextTick = System.nanoTime();
+            while (true) {
+                Character command = commands.poll(Math.max(0, nextTick - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (command != null) {
+                    if (command == QUIT || (command == PAUSE && !waitForPause())) {
+                        return;
+                    }
+                    nextTick = System.nanoTime();
+                    continue;
+                }
+                if (game.isCollision()) {
+                    if (!options.isAutopilot()) {
+                        renderer.showMessage("Game Over! Score: " + game.getScore()
+                                + "  SPACE for a new game, Q to quit");
+                        if (take(PAUSE) == QUIT) {
+                            return;
+                        }
+                    }
+                    game.newGame();
+                    inputQueue.clear();
+                } else {
+                    if (metrics != null) {
+                        metrics.recordDrift(System.nanoTime() - nextTick);
+                    }
+                    game.move(input.nextMove(game));
+                }
+                GameEvents.Paint event = new GameEvents.Paint();
+                event.begin();
+                long renderStart = metrics != null ? System.nanoTime() : 0;
+                renderer.render(game);
+                if (metrics != null) {
+                    metrics.recordPaint(System.nanoTime() - renderStart);
+                }
+                if (event.shouldCommit()) {
+                    event.set(game);
+                    event.cells = game.getChangedCells().isAll() ? game.getBoard().size()
+                            : game.getChangedCells().size();
+                    event.commit();
+                }
+                nextTick += (DELAY - game.getSpeedIncr()) * 1_000_000L;
+            }
+        } finally {
+            if (recorder != null) {
+                recorder.close();
+            }
+        }
+    }
+
+    /**
+     * Draws the frames of a GameServer and sends it the arrow keys, until Q is pressed or the connection is lost
+     */
+    private void playOnServer() throws IOException, InterruptedException {
+        try (GameClient client = GameClient.connect(options.getConnectHost(), options.getConnectPort())) {
+            startKeyReader(direction -> {
+                try {
+                    client.send(direction);
+                } catch (IOException ex) {
+                    // the next poll finds the lost connection
+                }
+            });
+            renderer.render(client.getBoard(), client.getChangedCells(), client.getHead(), client.getScore(),
+                    client.getSpeedIncr());
+            while (true) {
+                Character command = commands.poll(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+                if (command != null && (command == QUIT || (command == PAUSE && !waitForPause()))) {
+                    return;
+                }
+                try {
+                    if (client.poll()) {
+                        renderer.render(client.getBoard(), client.getChangedCells(), client.getHead(),
+                                client.getScore(), client.getSpeedIncr());
+                    }
+                } catch (IOException ex) {
+                    renderer.showMessage("Lost connection to the server: " + ex.getMessage());
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Shows that the game is paused and waits for SPACE again
+     * @return false if Q was pressed instead
+     */
+    private boolean waitForPause() throws IOException, InterruptedException {
+        renderer.showMessage("Paused  SPACE to go on, Q to quit");
+        return take(PAUSE) != QUIT;
+    }
+
+    /**
+     * Waits until command or QUIT is pressed, other commands are ignored
+     * @return the command pressed
+     */
+    private char take(char command) throws InterruptedException {
+        char taken;
+        do {
+            taken = commands.take();
+        } while (taken != command && taken != QUIT);
+        return taken;
+    }
+
+    /**
+     * Starts the daemon thread that reads the keys, arrow keys (ESC [ A to D) and WASD go to steer,
+     * SPACE and Q go to commands. At the end of the input the thread stops, so watching with --autopilot
+     * also works with no input at all
+     * @param steer called with the Direction of every arrow key, on the key reader thread
+     */
+    private void startKeyReader(Consumer<Direction> steer) {
+        Thread reader = new Thread(() -> {
+            InputStream in = System.in;
+            try {
+                int key;
+                while ((key = in.read()) >= 0) {
+                    if (key == 0x1B) {
+                        if (in.read() != '[') {
+                            continue;
+                        }
+                        key = switch (in.read()) {
+                            case 'A' -> 'w';
+                            case 'B' -> 's';
+                            case 'C' -> 'd';
+                            case 'D' -> 'a';
+                            default -> 0;
+                        };
+                    }
+                    switch (Character.toLowerCase(key)) {
+                        case 'w' -> steer.accept(Direction.UP);
+                        case 's' -> steer.accept(Direction.DOWN);
+                        case 'd' -> steer.accept(Direction.RIGHT);
+                        case 'a' -> steer.accept(Direction.LEFT);
+                        case PAUSE -> commands.add(PAUSE);
+                        case QUIT -> commands.add(QUIT);
+                        default -> {
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                // treated like the end of the input
+            }
+        }, "Snake keys");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Puts the terminal back the way it was, called when the game ends and on Ctrl-C
+     */
+    private synchronized void restoreTerminal() {
+        if (restored) {
+            return;
+        }
+        restored = true;
+        try {
+            renderer.stop();
+        } catch (IOException ex) {
+            // nothing left to draw on
+        }
+        if (savedTerminal != null) {
+            stty(savedTerminal);
+        }
+    }
+
+    /**
+     * Runs stty on the terminal
+     * @return what stty printed, null if there is no terminal or stty failed
+     */
+    private String stty(String arguments) {
+        if (System.console() == null) {
+            return null;
+        }
+        try {
+            Process process = new ProcessBuilder("sh", "-c", "stty " + arguments + " < /dev/tty")
+                    .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII).trim();
+            return process.waitFor() == 0 ? output : null;
+        } catch (IOException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
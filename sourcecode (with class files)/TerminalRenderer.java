@@ -0,0 +1,316 @@
+/**
+ * TerminalRenderer.java
+ * Draws the gameBoard on an ANSI terminal, one character per gamePiece (see GamePieces.symbol), for --terminal
+ * Only the first frame, a new game, and a camera move redraw the whole view. Every other frame only moves the cursor
+ * to the cells that changed (ChangedCells) and writes those, so a tick costs a few dozen bytes however big the board is.
+ * A frame is built in a byte array that is reused for every frame and written to the terminal with a single write.
+ * Boards bigger than the terminal are shown through a camera that follows the head of the snake, like MainGame
+ */
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class TerminalRenderer {
+    private static final byte ESC = 0x1B;
+    private static final GamePieces[] PIECES = GamePieces.values();
+    private static final byte HEAD_SYMBOL = '@';
+    private static final byte[] SYMBOLS = new byte[PIECES.length];
+    private static final int[] COLORS = new int[PIECES.length];
+
+    static {
+        for (GamePieces piece : PIECES) {
+            SYMBOLS[piece.ordinal()] = (byte) piece.symbol();
+            COLORS[piece.ordinal()] = colorOf(piece);
+        }
+    }
+
+    private final OutputStream out;
+    private final int viewRows;
+    private final int viewCols;
+    private byte[] buffer = new byte[4096];
+    private int length = 0;
+
+    private Board shownBoard;
+    private int cameraRow = 0;
+    private int cameraCol = 0;
+    private int shownHead = -1;
+    private int shownScore = -1;
+    private int shownSpeed = -1;
+    private int cursorRow = -1;
+    private int cursorCol = -1;
+    private int color = -1;
+    private long bytesWritten = 0;
+
+    /**
+     * Creates a new TerminalRenderer, nothing is written until the first render
+     * @param out stream of the terminal
+     * @param terminalRows number of rows of the terminal, the last row is used for the score
+     * @param terminalCols number of columns of the terminal
+     */
+    public TerminalRenderer(OutputStream out, int terminalRows, int terminalCols) {
+        this.out = out;
+        this.viewRows = Math.max(1, terminalRows - 1);
+        this.viewCols = Math.max(1, terminalCols);
+    }
+
+    /**
+     * Draws the tick that game just played, see render(Board, ChangedCells, int, int, int)
+     * @param game GameManager of the game to draw
+     */
+    public void render(GameManager game) throws IOException {
+        int head = game.getSnakeLength() == 0 ? -1 : game.getSnakeBody().head();
+        render(game.getBoard(), game.getChangedCells(), head, game.getScore(), game.getSpeedIncr());
+    }
+
+    /**
+     * Draws a frame: the cells that changed, the head, and the score and speed if they changed
+     * Everything is redrawn if the board is not the one drawn last time, if every cell changed, or if the camera moved
+     * @param board Board to draw
+     * @param changedCells cells of board that changed since the last render
+     * @param head cell (row * maxCol + col) of the head of the snake, -1 if there is none
+     * @param score score to show
+     * @param speedIncr speed to show
+     */
+    public void render(Board board, ChangedCells changedCells, int head, int score, int speedIncr)
+            throws IOException {
+        boolean cameraMoved = followHead(board, head);
+        if (board != shownBoard || changedCells.isAll() || cameraMoved) {
+            redraw(board, head, board != shownBoard);
+            shownBoard = board;
+        } else {
+            for (int i = 0; i < changedCells.size(); i++) {
+                putCell(board, changedCells.get(i), head);
+            }
+            if (shownHead != head) {
+                putCell(board, shownHead, head);
+                putCell(board, head, head);
+            }
+        }
+        shownHead = head;
+
+        if (score != shownScore || speedIncr != shownSpeed) {
+            shownScore = score;
+            shownSpeed = speedIncr;
+            putStatus("Score: " + score + "  Speed: " + speedIncr);
+        }
+        flush();
+    }
+
+    /**
+     * Writes a message on the score line, it stays there until the score or speed changes
+     * @param message text to show, it is cut to the width of the terminal
+     */
+    public void showMessage(String message) throws IOException {
+        shownScore = -1;
+        putStatus(message);
+        flush();
+    }
+
+    /**
+     * Hides the cursor and clears the terminal, called once before the first render
+     */
+    public void start() throws IOException {
+        putCsi("?25l");
+        putCsi("2J");
+        cursorRow = -1;
+        flush();
+    }
+
+    /**
+     * Resets the colors, shows the cursor again, and moves it below the board
+     */
+    public void stop() throws IOException {
+        putCsi("0m");
+        color = -1;
+        moveTo(viewRows, 0);
+        put((byte) '\r');
+        put((byte) '\n');
+        putCsi("?25h");
+        cursorRow = -1;
+        flush();
+    }
+
+    /**
+     * @return number of bytes written to the terminal so far
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Writes every cell the camera shows, one cursor move per row
+     * @param clear true if the terminal is cleared first, the board might be smaller than the last one
+     */
+    private void redraw(Board board, int head, boolean clear) {
+        int rows = Math.min(viewRows, board.getRows());
+        int cols = Math.min(viewCols, board.getCols());
+        if (clear) {
+            putCsi("2J");
+            cursorRow = -1;
+            shownScore = -1;
+        }
+        for (int row = 0; row < rows; row++) {
+            moveTo(row, 0);
+            int cell = (cameraRow + row) * board.getCols() + cameraCol;
+            for (int col = 0; col < cols; col++, cell++) {
+                putSymbol(board.getOrdinal(cell), cell == head);
+            }
+        }
+    }
+
+    /**
+     * Writes a single cell, if the camera shows it
+     */
+    private void putCell(Board board, int cell, int head) {
+        if (cell < 0) {
+            return;
+        }
+        int row = cell / board.getCols() - cameraRow;
+        int col = cell % board.getCols() - cameraCol;
+        if (row < 0 || row >= viewRows || col < 0 || col >= viewCols) {
+            return;
+        }
+        moveTo(row, col);
+        putSymbol(board.getOrdinal(cell), cell == head);
+    }
+
+    /**
+     * Writes the symbol of a gamePiece at the cursor, the color is only set if it is not the last one written
+     */
+    private void putSymbol(byte ordinal, boolean isHead) {
+        if (COLORS[ordinal] != color) {
+            color = COLORS[ordinal];
+            put(ESC);
+            put((byte) '[');
+            putInt(color);
+            put((byte) 'm');
+        }
+        put(isHead ? HEAD_SYMBOL : SYMBOLS[ordinal]);
+        cursorCol++;
+    }
+
+    private void putStatus(String text) {
+        putCsi("0m");
+        color = -1;
+        moveTo(Math.min(viewRows, shownBoard == null ? viewRows : shownBoard.getRows()), 0);
+        putCsi("K");
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < Math.min(bytes.length, viewCols); i++) {
+            put(bytes[i]);
+        }
+        cursorRow = -1;
+    }
+
+    /**
+     * Moves the cursor, nothing is written if it is already there (the cell right after the last one written)
+     */
+    private void moveTo(int row, int col) {
+        if (row == cursorRow && col == cursorCol) {
+            return;
+        }
+        put(ESC);
+        put((byte) '[');
+        putInt(row + 1);
+        put((byte) ';');
+        putInt(col + 1);
+        put((byte) 'H');
+        cursorRow = row;
+        cursorCol = col;
+    }
+
+    private void putCsi(String command) {
+        put(ESC);
+        put((byte) '[');
+        for (int i = 0; i < command.length(); i++) {
+            put((byte) command.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a non negative int in decimal, without making a String
+     */
+    private void putInt(int value) {
+        int digits = 1;
+        for (int rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void put(byte b) {
+        ensureCapacity(1);
+        buffer[length++] = b;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Writes the frame to the terminal with a single write
+     */
+    private void flush() throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            out.flush();
+            bytesWritten += length;
+            length = 0;
+        }
+    }
+
+    /**
+     * Moves the camera once the head gets within a quarter of the view of its edges, the same way as MainGame
+     * @return true if the camera moved
+     */
+    private boolean followHead(Board board, int head) {
+        if (head < 0) {
+            return false;
+        }
+        int row = follow(cameraRow, head / board.getCols(), viewRows, board.getRows());
+        int col = follow(cameraCol, head % board.getCols(), viewCols, board.getCols());
+        if (row == cameraRow && col == cameraCol) {
+            return false;
+        }
+        cameraRow = row;
+        cameraCol = col;
+        return true;
+    }
+
+    private static int follow(int camera, int head, int view, int size) {
+        if (size <= view) {
+            return 0;
+        }
+        int margin = view / 4;
+        if (head - camera < margin || head - camera >= view - margin) {
+            camera = head - view / 2;
+        }
+        return Math.max(0, Math.min(camera, size - view));
+    }
+
+    /**
+     * ANSI foreground color that a gamePiece is drawn with, close to the colors of BoardPainter
+     * (the SNAKE is white, so it stands out from a GOLDAPPLE)
+     * @param piece gamePiece to be drawn
+     * @return SGR color code of the gamePiece
+     */
+    private static int colorOf(GamePieces piece) {
+        return switch (piece) {
+            case WALL -> 33;
+            case SNAKE -> 97;
+            case APPLE -> 91;
+            case GOLDAPPLE -> 93;
+            case SPEEDAPPLE -> 94;
+            case PUMPKINAPPLE -> 31;
+            default -> 32;
+        };
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * TickResult.java
+ * Enum that contains the possible outcomes of a single game tick
+ */
+
+/**
+ * MOVED - the snake moved onto an EMPTY piece
+ * ATE_APPLE - the snake moved onto any type of APPLE
+ * COLLISION - the snake hit a WALL or itself, the game is over
+ */
+public enum TickResult {
+    MOVED,
+    ATE_APPLE,
+    COLLISION,
+}
@@ -0,0 +1,239 @@
+/**
+ * VectorEnv.java
+ * Holds N headless games on the same level and steps them all at once, for training agents
+ * Observations are written straight into a ByteBuffer given by the caller, one slab of rows * cols bytes per game,
+ * each byte the ordinal of the gamePiece in that cell (see GamePieces), rewards and done flags into primitive arrays.
+ * After a step only the cells that changed are written (see ChangedCells), so the buffer has to be kept between steps.
+ * On one thread step allocates nothing. With more threads, the games are split into fixed chunks that are stepped
+ * by ForkJoinTasks created once and reused, so only the pool itself allocates a few bytes to hand them over
+ *
+ * Actions are Direction ordinals (LEFT, RIGHT, DOWN, UP), or -1 to keep moving in the current direction
+ * The reward of a step is the score gained, or -1 on a collision, after which the game is done until it is reset
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+public class VectorEnv implements AutoCloseable {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SnakeEngine[] engines;
+    private final SplittableRandom seeds;
+    private final int cellCount;
+
+    private final ForkJoinPool pool;
+    private final StepTask[] tasks;
+    private final StepAll stepAll;
+
+    private int[] actions;
+    private ByteBuffer observations;
+    private float[] rewards;
+    private boolean[] dones;
+
+    /**
+     * Creates count games on the same level, stepped on the calling thread
+     * @param count number of games
+     * @param levelArgs command line args passed to GameManager (the level file)
+     * @param mapChoice built-in level choice passed to GameManager
+     * @param seed seed the seeds of every game (and every reset) are drawn from
+     */
+    public VectorEnv(int count, String[] levelArgs, int mapChoice, long seed) throws IOException {
+        this(count, levelArgs, mapChoice, seed, 1);
+    }
+
+    /**
+     * Creates count games on the same level
+     * @param count number of games
+     * @param levelArgs command line args passed to GameManager (the level file)
+     * @param mapChoice built-in level choice passed to GameManager
+     * @param seed seed the seeds of every game (and every reset) are drawn from
+     * @param threads number of threads the games are stepped on, 1 steps them on the calling thread
+     */
+    public VectorEnv(int count, String[] levelArgs, int mapChoice, long seed, int threads) throws IOException {
+        this.seeds = new SplittableRandom(seed);
+        this.engines = new SnakeEngine[count];
+        for (int i = 0; i < count; i++) {
+            engines[i] = new SnakeEngine(new GameManager(levelArgs, mapChoice, seeds.nextLong()));
+        }
+        this.cellCount = engines[0].getGame().getBoard().size();
+
+        if (threads > 1) {
+            int chunks = Math.min(threads, count);
+            this.pool = new ForkJoinPool(threads);
+            this.tasks = new StepTask[chunks];
+            for (int i = 0; i < chunks; i++) {
+                tasks[i] = new StepTask(count * i / chunks, count * (i + 1) / chunks);
+            }
+            this.stepAll = new StepAll();
+        } else {
+            this.pool = null;
+            this.tasks = null;
+            this.stepAll = null;
+        }
+    }
+
+    /**
+     * @return number of games
+     */
+    public int getCount() {
+        return engines.length;
+    }
+
+    /**
+     * @return number of bytes in the observation of a single game (rows * cols)
+     */
+    public int getObservationSize() {
+        return cellCount;
+    }
+
+    /**
+     * @return number of rows of the board
+     */
+    public int getRows() {
+        return engines[0].getGame().getBoard().getRows();
+    }
+
+    /**
+     * @return number of columns of the board
+     */
+    public int getCols() {
+        return engines[0].getGame().getBoard().getCols();
+    }
+
+    /**
+     * @param env index of the game
+     * @return GameManager of that game, for reading its score, length, or tick
+     */
+    public GameManager getGame(int env) {
+        return engines[env].getGame();
+    }
+
+    /**
+     * Starts a new game in every env where mask is true, and writes its whole board into observations
+     * @param mask true for every game to be reset, null resets all games
+     * @param observations ByteBuffer of at least getCount() * getObservationSize() bytes, preferably direct
+     */
+    public void reset(boolean[] mask, ByteBuffer observations) {
+        checkObservations(observations);
+        for (int env = 0; env < engines.length; env++) {
+            if (mask == null || mask[env]) {
+                engines[env].reset(seeds.nextLong());
+                engines[env].getGame().getBoard().copyTo(observations, env * cellCount);
+            }
+        }
+    }
+
+    /**
+     * Moves every game one tick, games that are done stay as they are with a reward of 0
+     * @param actions Direction ordinal of every game, or -1 to keep moving in the current direction
+     * @param observations ByteBuffer that was passed to reset, the cells that changed are written into it
+     * @param rewards reward of every game for this step
+     * @param dones true for every game that is over
+     */
+    public void step(int[] actions, ByteBuffer observations, float[] rewards, boolean[] dones) {
+        checkObservations(observations);
+        if (pool == null) {
+            step(0, engines.length, actions, observations, rewards, dones);
+            return;
+        }
+        this.actions = actions;
+        this.observations = observations;
+        this.rewards = rewards;
+        this.dones = dones;
+        for (StepTask task : tasks) {
+            task.reinitialize();
+        }
+        stepAll.reinitialize();
+        pool.invoke(stepAll);
+    }
+
+    /**
+     * Steps the games from (inclusive) to to (exclusive)
+     */
+    private void step(int from, int to, int[] actions, ByteBuffer observations, float[] rewards, boolean[] dones) {
+        for (int env = from; env < to; env++) {
+            SnakeEngine engine = engines[env];
+            GameManager game = engine.getGame();
+            if (game.isCollision()) {
+                rewards[env] = 0;
+                dones[env] = true;
+                continue;
+            }
+
+            Direction direction = actions[env] < 0 ? game.getHeading() : DIRECTIONS[actions[env]];
+            int scoreBefore = game.getScore();
+            TickResult result = engine.step(direction);
+            rewards[env] = result == TickResult.COLLISION ? -1 : game.getScore() - scoreBefore;
+            dones[env] = result == TickResult.COLLISION;
+            writeChanges(game, observations, env * cellCount);
+        }
+    }
+
+    /**
+     * Writes the cells that changed in the last tick of game into its slab of observations
+     */
+    private static void writeChanges(GameManager game, ByteBuffer observations, int offset) {
+        Board board = game.getBoard();
+        ChangedCells changedCells = game.getChangedCells();
+        if (changedCells.isAll()) {
+            board.copyTo(observations, offset);
+            return;
+        }
+        for (int i = 0; i < changedCells.size(); i++) {
+            int cell = changedCells.get(i);
+            observations.put(offset + cell, board.getOrdinal(cell));
+        }
+    }
+
+    private void checkObservations(ByteBuffer observations) {
+        if (observations.capacity() < (long) engines.length * cellCount) {
+            throw new IllegalArgumentException("observations needs " + (long) engines.length * cellCount
+                    + " bytes, has " + observations.capacity());
+        }
+    }
+
+    /**
+     * Steps every chunk, one of them on the calling worker
+     */
+    private class StepAll extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Steps a fixed chunk of the games
+     */
+    private class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        StepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            step(from, to, actions, observations, rewards, dones);
+        }
+    }
+
+    /**
+     * Shuts down the worker threads, if there are any
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -9,6 +9,20 @@ public class Wall {
     private final int wallUpBound;
     private final int wallLowBound;
 
+    /**
+     * A constructor that takes the bounds of the wall, used for compiled level files
+     * @param wallLeftBound leftmost column
+     * @param wallRightBound rightmost column
+     * @param wallUpBound top row
+     * @param wallLowBound bottom row
+     */
+    Wall(int wallLeftBound, int wallRightBound, int wallUpBound, int wallLowBound) {
+        this.wallLeftBound = wallLeftBound;
+        this.wallRightBound = wallRightBound;
+        this.wallUpBound = wallUpBound;
+        this.wallLowBound = wallLowBound;
+    }
+
     /**
      * A constructor that takes a string with given wall information, and parses that string to set bounds
      * @param wallStr
@@ -0,0 +1,178 @@
+/**
+ * WallIndex.java
+ * Spatial index of the walls of a Level, so WALL cells can be checked and the walls in a rectangle found
+ * without a WALL flag per cell. GameManager, Arena, and the bots check every move against it
+ * The board is split into a uniform grid of BUCKET_SIZE x BUCKET_SIZE buckets (the same as the chunks of Board),
+ * every bucket lists the walls that overlap it, and remembers if a single wall covers all of it.
+ * A bucket that more than BITMAP_WALLS walls overlap also keeps a bitmap of its WALL cells (one long per row),
+ * so checking a cell never looks at more than BITMAP_WALLS walls, even on levels with many small walls.
+ * Building it and its memory depend on the number of walls and the buckets they touch, not on their area
+ */
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public final class WallIndex {
+    static final int BUCKET_BITS = Board.CHUNK_BITS;
+    static final int BUCKET_SIZE = 1 << BUCKET_BITS;
+    static final int BITMAP_WALLS = 8;
+    private static final int[] NO_WALLS = new int[0];
+
+    private final int rows;
+    private final int cols;
+    private final int bucketCols;
+    private final Wall[] walls;
+    private final int[][] buckets;
+    private final boolean[] covered;
+    private final long[][] bitmaps;
+
+    /**
+     * Creates the index of walls, every wall has to be inside the board
+     * @param rows number of rows of the board
+     * @param cols number of columns of the board
+     * @param walls walls to index
+     */
+    WallIndex(int rows, int cols, List<Wall> walls) {
+        this.rows = rows;
+        this.cols = cols;
+        this.bucketCols = (cols + BUCKET_SIZE - 1) >>> BUCKET_BITS;
+        int bucketRows = (rows + BUCKET_SIZE - 1) >>> BUCKET_BITS;
+        this.walls = walls.toArray(new Wall[0]);
+        this.buckets = new int[bucketRows * bucketCols][];
+        this.covered = new boolean[buckets.length];
+        this.bitmaps = new long[buckets.length][];
+
+        int[] counts = new int[buckets.length];
+        for (Wall wall : this.walls) {
+            forEachBucket(wall, bucket -> counts[bucket]++);
+        }
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            buckets[bucket] = counts[bucket] == 0 ? NO_WALLS : new int[counts[bucket]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < this.walls.length; i++) {
+            int wall = i;
+            forEachBucket(this.walls[i], bucket -> buckets[bucket][counts[bucket]++] = wall);
+        }
+        for (Wall wall : this.walls) {
+            markCovered(wall);
+        }
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            if (buckets[bucket].length > BITMAP_WALLS && !covered[bucket]) {
+                bitmaps[bucket] = bitmap(bucket);
+            }
+        }
+    }
+
+    /**
+     * @return bitmap of the WALL cells of bucket, one long per row of the bucket
+     */
+    private long[] bitmap(int bucket) {
+        long[] bits = new long[BUCKET_SIZE];
+        int firstRow = bucket / bucketCols << BUCKET_BITS;
+        int firstCol = bucket % bucketCols << BUCKET_BITS;
+        for (int index : buckets[bucket]) {
+            Wall wall = walls[index];
+            int fromCol = Math.max(wall.getWallLeftBound(), firstCol) - firstCol;
+            int toCol = Math.min(wall.getWallRightBound(), firstCol + BUCKET_SIZE - 1) - firstCol;
+            long mask = -1L >>> BUCKET_SIZE - 1 - toCol + fromCol << fromCol;
+            int toRow = Math.min(wall.getWallLowBound(), firstRow + BUCKET_SIZE - 1) - firstRow;
+            for (int row = Math.max(wall.getWallUpBound(), firstRow) - firstRow; row <= toRow; row++) {
+                bits[row] |= mask;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Calls action with every bucket that wall overlaps
+     */
+    private void forEachBucket(Wall wall, IntConsumer action) {
+        for (int bucketRow = wall.getWallUpBound() >>> BUCKET_BITS;
+             bucketRow <= wall.getWallLowBound() >>> BUCKET_BITS; bucketRow++) {
+            for (int bucketCol = wall.getWallLeftBound() >>> BUCKET_BITS;
+                 bucketCol <= wall.getWallRightBound() >>> BUCKET_BITS; bucketCol++) {
+                action.accept(bucketRow * bucketCols + bucketCol);
+            }
+        }
+    }
+
+    /**
+     * Marks the buckets whose cells inside the board are all in wall
+     */
+    private void markCovered(Wall wall) {
+        for (int bucketRow = wall.getWallUpBound() >>> BUCKET_BITS;
+             bucketRow <= wall.getWallLowBound() >>> BUCKET_BITS; bucketRow++) {
+            int firstRow = bucketRow << BUCKET_BITS;
+            int lastRow = Math.min(firstRow + BUCKET_SIZE, rows) - 1;
+            if (wall.getWallUpBound() > firstRow || wall.getWallLowBound() < lastRow) {
+                continue;
+            }
+            for (int bucketCol = wall.getWallLeftBound() >>> BUCKET_BITS;
+                 bucketCol <= wall.getWallRightBound() >>> BUCKET_BITS; bucketCol++) {
+                int firstCol = bucketCol << BUCKET_BITS;
+                int lastCol = Math.min(firstCol + BUCKET_SIZE, cols) - 1;
+                if (wall.getWallLeftBound() <= firstCol && wall.getWallRightBound() >= lastCol) {
+                    covered[bucketRow * bucketCols + bucketCol] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param row row int of the cell
+     * @param col col int of the cell
+     * @return true if the cell is inside a wall
+     */
+    public boolean isWall(int row, int col) {
+        int bucket = (row >>> BUCKET_BITS) * bucketCols + (col >>> BUCKET_BITS);
+        if (covered[bucket]) {
+            return true;
+        } else if (bitmaps[bucket] != null) {
+            return (bitmaps[bucket][row & BUCKET_SIZE - 1] & 1L << col) != 0;
+        }
+        for (int wall : buckets[bucket]) {
+            if (overlaps(walls[wall], row, row, col, col)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives every wall that overlaps a rectangle to action, once each
+     * A wall is only given in the first bucket where it and the rectangle overlap, so it is never given twice
+     * @param upRow top row of the rectangle
+     * @param lowRow bottom row of the rectangle (inclusive)
+     * @param leftCol leftmost column of the rectangle
+     * @param rightCol rightmost column of the rectangle (inclusive)
+     * @param action called with every wall that overlaps the rectangle
+     */
+    public void forEachWall(int upRow, int lowRow, int leftCol, int rightCol, Consumer<Wall> action) {
+        upRow = Math.max(upRow, 0);
+        leftCol = Math.max(leftCol, 0);
+        lowRow = Math.min(lowRow, rows - 1);
+        rightCol = Math.min(rightCol, cols - 1);
+        if (upRow > lowRow || leftCol > rightCol) {
+            return;
+        }
+        for (int bucketRow = upRow >>> BUCKET_BITS; bucketRow <= lowRow >>> BUCKET_BITS; bucketRow++) {
+            for (int bucketCol = leftCol >>> BUCKET_BITS; bucketCol <= rightCol >>> BUCKET_BITS; bucketCol++) {
+                for (int index : buckets[bucketRow * bucketCols + bucketCol]) {
+                    Wall wall = walls[index];
+                    if (overlaps(wall, upRow, lowRow, leftCol, rightCol)
+                            && Math.max(wall.getWallUpBound(), upRow) >>> BUCKET_BITS == bucketRow
+                            && Math.max(wall.getWallLeftBound(), leftCol) >>> BUCKET_BITS == bucketCol) {
+                        action.accept(wall);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean overlaps(Wall wall, int upRow, int lowRow, int leftCol, int rightCol) {
+        return wall.getWallUpBound() <= lowRow && wall.getWallLowBound() >= upRow
+                && wall.getWallLeftBound() <= rightCol && wall.getWallRightBound() >= leftCol;
+    }
+}